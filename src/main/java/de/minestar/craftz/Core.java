@@ -27,19 +27,31 @@ import org.bukkit.plugin.java.JavaPlugin;
 
 import de.minestar.craftz.commands.CreateGame_Command;
 import de.minestar.craftz.commands.JoinGame_Command;
+import de.minestar.craftz.commands.LootPool_Command;
 import de.minestar.craftz.commands.QuitGame_Command;
 import de.minestar.craftz.commands.Ready_Command;
+import de.minestar.craftz.commands.Refill_Command;
 import de.minestar.craftz.commands.SetLobbySpawn_Command;
 import de.minestar.craftz.commands.SetPlayerSpawn_Command;
 import de.minestar.craftz.commands.SetSpectatorSpawn_Command;
+import de.minestar.craftz.commands.Snapshot_Command;
 import de.minestar.craftz.commands.StartGame_Command;
 import de.minestar.craftz.commands.StopGame_Command;
 import de.minestar.craftz.commands.TPLoot_Command;
+import de.minestar.craftz.commands.Timings_Command;
 import de.minestar.craftz.listener.AdminListener;
 import de.minestar.craftz.listener.BlockListener;
+import de.minestar.craftz.listener.EntityListener;
+import de.minestar.craftz.data.PluginSettings;
 import de.minestar.craftz.listener.PlayerListener;
+import de.minestar.craftz.listener.WorldListener;
+import de.minestar.craftz.manager.CountdownManager;
 import de.minestar.craftz.manager.GameManager;
+import de.minestar.craftz.manager.Mailbox;
+import de.minestar.craftz.manager.TickScheduler;
+import de.minestar.craftz.manager.WorkExecutor;
 import de.minestar.craftz.utils.Chat;
+import de.minestar.craftz.utils.WallClock;
 
 public class Core extends JavaPlugin {
 
@@ -48,7 +60,11 @@ public class Core extends JavaPlugin {
     public static final String NAME = "CraftZ";
     public static final String VERSION = "0.1alpha";
 
+    public static PluginSettings settings;
     public static GameManager gameManager;
+    public static TickScheduler tickScheduler;
+    public static CountdownManager countdownManager;
+    public static WorkExecutor workExecutor;
 
     @Override
     public void onEnable() {
@@ -57,16 +73,27 @@ public class Core extends JavaPlugin {
         // create dirs
         Core.INSTANCE.getDataFolder().mkdir();
 
+        // load settings
+        Core.settings = new PluginSettings();
+
         // create managers
+        Core.tickScheduler = new TickScheduler(new WallClock(), new Mailbox(Core.settings.getMailboxBudget()));
+        Core.countdownManager = new CountdownManager(Core.tickScheduler);
+        Core.workExecutor = new WorkExecutor(Core.tickScheduler, Core.settings.getWorkBudget());
         Core.gameManager = new GameManager();
 
         // enable managers
+        Core.tickScheduler.onEnable();
+        Core.countdownManager.onEnable();
+        Core.workExecutor.onEnable();
         Core.gameManager.onEnable();
 
         // create listeners
         Bukkit.getPluginManager().registerEvents(new AdminListener(), this);
         Bukkit.getPluginManager().registerEvents(new BlockListener(), this);
+        Bukkit.getPluginManager().registerEvents(new EntityListener(), this);
         Bukkit.getPluginManager().registerEvents(new PlayerListener(), this);
+        Bukkit.getPluginManager().registerEvents(new WorldListener(), this);
 
         Player[] playerList = Bukkit.getOnlinePlayers();
         for (Player player : playerList) {
@@ -80,6 +107,9 @@ public class Core extends JavaPlugin {
     public void onDisable() {
         // disable managers
         Core.gameManager.onDisable();
+        Core.workExecutor.onDisable();
+        Core.countdownManager.onDisable();
+        Core.tickScheduler.onDisable();
 
         // print info
         Chat.printMessage(NAME + " version " + VERSION + " disabled!");
@@ -152,6 +182,22 @@ public class Core extends JavaPlugin {
                 new TPLoot_Command().execute((Player) sender, args);
                 return true;
             }
+            if (args[0].equalsIgnoreCase("lootpool")) {
+                new LootPool_Command().execute((Player) sender, args);
+                return true;
+            }
+            if (args[0].equalsIgnoreCase("refill")) {
+                new Refill_Command().execute((Player) sender, args);
+                return true;
+            }
+            if (args[0].equalsIgnoreCase("snapshot")) {
+                new Snapshot_Command().execute((Player) sender, args);
+                return true;
+            }
+            if (args[0].equalsIgnoreCase("timings")) {
+                new Timings_Command().execute((Player) sender, args);
+                return true;
+            }
         } else {
             sender.sendMessage(ChatColor.RED + "Only ingame!");
             return true;
@@ -0,0 +1,133 @@
+package de.minestar.craftz.commands;
+
+import org.bukkit.ChatColor;
+import org.bukkit.block.Block;
+import org.bukkit.entity.Player;
+
+import de.minestar.craftz.Core;
+import de.minestar.craftz.data.SurvivalPlayer;
+import de.minestar.craftz.data.loot.AbstractLootspot;
+import de.minestar.craftz.data.loot.LootPool;
+import de.minestar.craftz.data.loot.LootPools;
+import de.minestar.craftz.manager.LootManager;
+
+public class LootPool_Command {
+
+    public void execute(Player sender, String[] args) {
+        // check the argumentcount
+        if (args.length < 2 || args.length > 4) {
+            this.sendSyntax(sender);
+            return;
+        }
+
+        // get the player
+        SurvivalPlayer sPlayer = Core.gameManager.getPlayer(sender.getName());
+        if (sPlayer == null) {
+            sender.sendMessage(ChatColor.RED + "You are currently not in a survivalgame!");
+            return;
+        }
+
+        if (!sPlayer.getCurrentGame().isGameInLobby()) {
+            sender.sendMessage(ChatColor.RED + "Game is currently running!");
+            return;
+        }
+
+        LootManager lootManager = sPlayer.getCurrentGame().getLootManager();
+        String action = args[1];
+
+        // LIST ALL POOLS
+        if (action.equalsIgnoreCase("list") && args.length == 2) {
+            this.listPools(sender, "Arena", lootManager.getPools());
+            this.listPools(sender, "Global", lootManager.getPools().getParent());
+            return;
+        }
+
+        // the other actions change the lootspots
+        if (!lootManager.isLoaded()) {
+            sender.sendMessage(ChatColor.RED + "Lootspots are still loading!");
+            return;
+        }
+
+        // the other actions need a pool and a lootspot
+        if (action.equalsIgnoreCase("unassign") && args.length == 2) {
+            AbstractLootspot lootSpot = this.getTargetLootspot(sender, lootManager);
+            if (lootSpot != null) {
+                lootSpot.setPoolName(null);
+                lootSpot.saveLoot();
+                sender.sendMessage(ChatColor.GREEN + "Lootspot does not use a lootpool anymore!");
+            }
+            return;
+        }
+
+        if (args.length < 3) {
+            this.sendSyntax(sender);
+            return;
+        }
+
+        String poolName = args[2];
+        boolean global = (args.length == 4 && args[3].equalsIgnoreCase("global"));
+        LootPools pools = global ? lootManager.getPools().getParent() : lootManager.getPools();
+
+        // SAVE THE TARGETED LOOTSPOT AS POOL
+        if (action.equalsIgnoreCase("save")) {
+            AbstractLootspot lootSpot = this.getTargetLootspot(sender, lootManager);
+            if (lootSpot != null) {
+                LootPool pool = pools.setPool(poolName, lootSpot.getInventoryLoot());
+                sender.sendMessage(ChatColor.GREEN + "Lootpool '" + pool.getName() + "' saved with " + pool.getLoot().size() + " items!");
+            }
+            return;
+        }
+
+        // LET THE TARGETED LOOTSPOT USE THE POOL
+        if (action.equalsIgnoreCase("assign") && args.length == 3) {
+            if (pools.getPool(poolName) == null) {
+                sender.sendMessage(ChatColor.RED + "Lootpool '" + poolName + "' not found!");
+                return;
+            }
+            AbstractLootspot lootSpot = this.getTargetLootspot(sender, lootManager);
+            if (lootSpot != null) {
+                lootSpot.usePool(poolName);
+                lootSpot.saveLoot();
+                sender.sendMessage(ChatColor.GREEN + "Lootspot uses the lootpool '" + poolName + "' now!");
+            }
+            return;
+        }
+
+        // REMOVE A POOL
+        if (action.equalsIgnoreCase("remove")) {
+            if (pools.removePool(poolName)) {
+                sender.sendMessage(ChatColor.GREEN + "Lootpool '" + poolName + "' removed!");
+            } else {
+                sender.sendMessage(ChatColor.RED + "Lootpool '" + poolName + "' not found!");
+            }
+            return;
+        }
+
+        this.sendSyntax(sender);
+    }
+
+    private AbstractLootspot getTargetLootspot(Player sender, LootManager lootManager) {
+        Block block = sender.getTargetBlock(null, 6);
+        AbstractLootspot lootSpot = (block != null) ? lootManager.getLootspot(block.getLocation()) : null;
+        if (lootSpot == null) {
+            sender.sendMessage(ChatColor.RED + "You are not looking at a lootspot!");
+        }
+        return lootSpot;
+    }
+
+    private void listPools(Player sender, String title, LootPools pools) {
+        sender.sendMessage(ChatColor.GOLD + title + " lootpools:");
+        for (LootPool pool : pools.getPools()) {
+            sender.sendMessage(ChatColor.GRAY + pool.getName() + " (" + pool.getLoot().size() + " items)");
+        }
+    }
+
+    private void sendSyntax(Player sender) {
+        sender.sendMessage(ChatColor.RED + "Wrong syntax!");
+        sender.sendMessage(ChatColor.GRAY + "/game lootpool list");
+        sender.sendMessage(ChatColor.GRAY + "/game lootpool save <NAME> [global]");
+        sender.sendMessage(ChatColor.GRAY + "/game lootpool assign <NAME>");
+        sender.sendMessage(ChatColor.GRAY + "/game lootpool unassign");
+        sender.sendMessage(ChatColor.GRAY + "/game lootpool remove <NAME> [global]");
+    }
+}
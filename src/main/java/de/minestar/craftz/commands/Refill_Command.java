@@ -0,0 +1,53 @@
+package de.minestar.craftz.commands;
+
+import org.bukkit.ChatColor;
+import org.bukkit.entity.Player;
+
+import de.minestar.craftz.Core;
+import de.minestar.craftz.data.SurvivalGame;
+import de.minestar.craftz.data.SurvivalPlayer;
+import de.minestar.craftz.manager.LootManager;
+
+public class Refill_Command {
+
+    public void execute(final Player sender, String[] args) {
+        // check the argumentcount
+        if (args.length > 2 || (args.length == 2 && !args[1].equalsIgnoreCase("full"))) {
+            sender.sendMessage(ChatColor.RED + "Wrong syntax!");
+            sender.sendMessage(ChatColor.GRAY + "/game refill [full]");
+            return;
+        }
+
+        // get the player
+        SurvivalPlayer sPlayer = Core.gameManager.getPlayer(sender.getName());
+        if (sPlayer == null) {
+            sender.sendMessage(ChatColor.RED + "You are currently not in a survivalgame!");
+            return;
+        }
+
+        SurvivalGame game = sPlayer.getCurrentGame();
+        if (game.isGameInLobby()) {
+            sender.sendMessage(ChatColor.RED + "Game is not running!");
+            return;
+        }
+
+        final boolean fullRefill = (args.length == 2);
+        final LootManager lootManager = game.getLootManager();
+        if (game.getSettings().isLazyRefill()) {
+            game.startRefill(null, fullRefill, null);
+            sender.sendMessage(ChatColor.GREEN + "Lootspots will be refilled, once they are used!");
+            return;
+        }
+
+        sender.sendMessage(ChatColor.GREEN + "Refilling lootspots...");
+        game.startRefill(null, fullRefill, new Runnable() {
+            @Override
+            public void run() {
+                sender.sendMessage(ChatColor.GREEN + "Refilled " + lootManager.getRefilledCount() + " lootspots, skipped " + lootManager.getSkippedCount() + " unused ones!");
+                if (lootManager.getDeferredCount() > 0) {
+                    sender.sendMessage(ChatColor.GRAY + "" + lootManager.getDeferredCount() + " lootspots are refilled, once their chunk is loaded.");
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,92 @@
+package de.minestar.craftz.commands;
+
+import org.bukkit.Bukkit;
+import org.bukkit.ChatColor;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+
+import de.minestar.craftz.Core;
+import de.minestar.craftz.data.ArenaSnapshot;
+import de.minestar.craftz.data.GameSettings;
+import de.minestar.craftz.data.SurvivalGame;
+import de.minestar.craftz.data.SurvivalPlayer;
+import de.minestar.craftz.manager.SnapshotManager;
+
+public class Snapshot_Command {
+
+    // 993 blocks touch at most 63 chunks, see ArenaSnapshot.MAX_COLUMNS
+    private static final int MAX_RADIUS = 496;
+
+    public void execute(Player sender, String[] args) {
+        // check the argumentcount
+        if (args.length > 2) {
+            sender.sendMessage(ChatColor.RED + "Wrong syntax!");
+            sender.sendMessage(ChatColor.GRAY + "/game snapshot [radius]");
+            return;
+        }
+
+        // get the player
+        SurvivalPlayer sPlayer = Core.gameManager.getPlayer(sender.getName());
+        if (sPlayer == null) {
+            sender.sendMessage(ChatColor.RED + "You are currently not in a survivalgame!");
+            return;
+        }
+
+        SurvivalGame game = sPlayer.getCurrentGame();
+        if (!game.isGameInLobby()) {
+            sender.sendMessage(ChatColor.RED + "Game is currently running!");
+            return;
+        }
+
+        SnapshotManager snapshotManager = game.getSnapshotManager();
+        if (game.isResetting() || snapshotManager.isBusy()) {
+            sender.sendMessage(ChatColor.RED + "The arena is still being reset!");
+            return;
+        }
+
+        // the area around the player, or the last one
+        GameSettings settings = game.getSettings();
+        if (args.length == 2) {
+            int radius;
+            try {
+                radius = Integer.valueOf(args[1]);
+            } catch (NumberFormatException e) {
+                sender.sendMessage(ChatColor.RED + "'" + args[1] + "' is no number!");
+                return;
+            }
+            if (radius < 1 || radius > MAX_RADIUS) {
+                sender.sendMessage(ChatColor.RED + "The radius must be between 1 and " + MAX_RADIUS + "!");
+                return;
+            }
+            Location location = sender.getLocation();
+            if (!settings.setArenaBounds(location.getWorld().getName(), location.getBlockX() - radius, location.getBlockZ() - radius, location.getBlockX() + radius, location.getBlockZ() + radius)) {
+                sender.sendMessage(ChatColor.RED + "The arena may have at most " + ArenaSnapshot.MAX_COLUMNS + " chunks!");
+                return;
+            }
+            settings.saveConfig();
+        } else if (!settings.hasArenaBounds()) {
+            sender.sendMessage(ChatColor.RED + "The area of the arena is not set!");
+            sender.sendMessage(ChatColor.GRAY + "/game snapshot <radius>");
+            return;
+        } else if (settings.getArenaChunks() > ArenaSnapshot.MAX_COLUMNS) {
+            // set by hand in the config
+            sender.sendMessage(ChatColor.RED + "The arena has " + settings.getArenaChunks() + " chunks, a snapshot may have at most " + ArenaSnapshot.MAX_COLUMNS + "!");
+            sender.sendMessage(ChatColor.GRAY + "/game snapshot <radius>");
+            return;
+        }
+
+        World world = Bukkit.getWorld(settings.getArenaWorld());
+        if (world == null) {
+            sender.sendMessage(ChatColor.RED + "The world '" + settings.getArenaWorld() + "' is not loaded!");
+            return;
+        }
+
+        int minChunkX = settings.getArenaMinX() >> 4;
+        int minChunkZ = settings.getArenaMinZ() >> 4;
+        int maxChunkX = settings.getArenaMaxX() >> 4;
+        int maxChunkZ = settings.getArenaMaxZ() >> 4;
+        sender.sendMessage(ChatColor.GREEN + "Capturing " + ((maxChunkX - minChunkX + 1) * (maxChunkZ - minChunkZ + 1)) + " chunks...");
+        snapshotManager.capture(world, minChunkX, minChunkZ, maxChunkX, maxChunkZ, sender);
+    }
+}
@@ -35,6 +35,16 @@ public class StartGame_Command {
             return;
         }
 
+        if (!sPlayer.getCurrentGame().getLootManager().isLoaded()) {
+            sender.sendMessage(ChatColor.RED + "Lootspots are still loading!");
+            return;
+        }
+
+        if (sPlayer.getCurrentGame().isResetting()) {
+            sender.sendMessage(ChatColor.RED + "The arena is still being reset!");
+            return;
+        }
+
         Core.gameManager.startGame(sPlayer.getCurrentGame().getGameName());
     }
 }
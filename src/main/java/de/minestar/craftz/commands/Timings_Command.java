@@ -0,0 +1,45 @@
+package de.minestar.craftz.commands;
+
+import org.bukkit.ChatColor;
+import org.bukkit.entity.Player;
+
+import de.minestar.craftz.Core;
+import de.minestar.craftz.manager.SchedulerStats;
+import de.minestar.craftz.manager.SchedulerStats.TaskStats;
+import de.minestar.craftz.utils.LatencyHistogram;
+
+public class Timings_Command {
+
+    public void execute(Player sender, String[] args) {
+        // check the argumentcount
+        if (args.length > 2 || (args.length == 2 && !args[1].equalsIgnoreCase("reset"))) {
+            sender.sendMessage(ChatColor.RED + "Wrong syntax!");
+            sender.sendMessage(ChatColor.GRAY + "/game timings [reset]");
+            return;
+        }
+
+        SchedulerStats stats = Core.tickScheduler.getStats();
+        if (args.length == 2) {
+            stats.reset();
+            sender.sendMessage(ChatColor.GREEN + "Timings have been reset!");
+            return;
+        }
+
+        // print every task
+        sender.sendMessage(ChatColor.GOLD + "Task@Game: runs | late avg/p99/max (ms) | run avg/p99/max (us)");
+        for (TaskStats taskStats : stats.getAllTaskStats()) {
+            LatencyHistogram lateness = taskStats.getLateness();
+            LatencyHistogram duration = taskStats.getDuration();
+            if (lateness.getCount() == 0) {
+                continue;
+            }
+            sender.sendMessage(ChatColor.GRAY + taskStats.getName() + ": " + lateness.getCount() + " | " + lateness.getAverage() + "/" + lateness.getPercentile(0.99d) + "/" + lateness.getMax() + " | " + (duration.getAverage() / 1000) + "/" + (duration.getPercentile(0.99d) / 1000) + "/" + (duration.getMax() / 1000));
+        }
+
+        // print the queues
+        sender.sendMessage(ChatColor.GOLD + "Queues (now/max):");
+        sender.sendMessage(ChatColor.GRAY + "Scheduled tasks: " + Core.tickScheduler.getPendingTasks() + "/" + stats.getMaxPendingTasks());
+        sender.sendMessage(ChatColor.GRAY + "Mailbox: " + Core.tickScheduler.getMailbox().getSize() + "/" + stats.getMaxMailboxSize());
+        sender.sendMessage(ChatColor.GRAY + "Work batches: " + Core.workExecutor.getSize() + "/" + stats.getMaxWorkBatches());
+    }
+}
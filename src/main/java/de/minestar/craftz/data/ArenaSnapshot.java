@@ -0,0 +1,386 @@
+package de.minestar.craftz.data;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.bukkit.ChunkSnapshot;
+
+/**
+ * The blocks of an arena, as they were before the first match. The arena is
+ * stored per chunksection (16x16x16 blocks): a palette of the different
+ * blocks and the bitpacked palette indices, compressed. Every section has a
+ * hash in the index, so a restore only needs to read the sections, that are
+ * different from the world.
+ * <p>
+ * Header: int magic | int version | worldname | int minChunkX | int minChunkZ
+ * | int maxChunkX | int maxChunkZ | per column (x, then z) and section: long
+ * hash, int offset, int length <br>
+ * Section (deflated): short paletteSize | palette of shorts (typeID << 4 |
+ * data) | byte bits | longs with the indices, no index spans two longs <br>
+ * Empty sections have the length 0 and no data.
+ */
+public class ArenaSnapshot {
+
+    public static final String FILE_NAME = "arena.snapshot";
+
+    public static final int SECTIONS = 16;
+    public static final int SECTION_SIZE = 16 * 16 * 16;
+
+    // the capture holds the hashes and sections of all columns at once
+    public static final int MAX_COLUMNS = 64 * 64;
+
+    private static final int MAGIC = 0x41524E41;
+    private static final int VERSION = 1;
+    private static final int INDEX_ENTRY_SIZE = 16;
+
+    // the hash of a section full of air
+    public static final long EMPTY_HASH = hash(new int[SECTION_SIZE]);
+
+    private final File file;
+    private ByteBuffer index = null;
+    private RandomAccessFile input = null;
+    private FileChannel channel = null;
+    private String worldName;
+    private int minChunkX, minChunkZ, maxChunkX, maxChunkZ;
+
+    public ArenaSnapshot(File file) {
+        this.file = file;
+    }
+
+    public boolean exists() {
+        return this.file.exists();
+    }
+
+    /**
+     * Read the header and the index. The sections are read from the file,
+     * when they are needed, so the file stays open until {@link #close()}.
+     * The file is not mapped: a mapping lives until it is collected, which
+     * keeps the file from being replaced on some systems.
+     *
+     * @throws IOException
+     */
+    public void open() throws IOException {
+        DataInputStream stream = new DataInputStream(new BufferedInputStream(new FileInputStream(this.file)));
+        try {
+            if (stream.readInt() != MAGIC) {
+                throw new IOException("'" + this.file.getName() + "' is no arenasnapshot!");
+            }
+            int version = stream.readInt();
+            if (version != VERSION) {
+                throw new IOException("'" + this.file.getName() + "' has the unknown version " + version + "!");
+            }
+
+            byte[] bytes = new byte[stream.readShort()];
+            stream.readFully(bytes);
+            this.worldName = new String(bytes, "UTF-8");
+            this.minChunkX = stream.readInt();
+            this.minChunkZ = stream.readInt();
+            this.maxChunkX = stream.readInt();
+            this.maxChunkZ = stream.readInt();
+
+            byte[] index = new byte[this.getColumnCount() * SECTIONS * INDEX_ENTRY_SIZE];
+            stream.readFully(index);
+            this.index = ByteBuffer.wrap(index);
+        } catch (EOFException e) {
+            throw new IOException("'" + this.file.getName() + "' is truncated!", e);
+        } finally {
+            stream.close();
+        }
+
+        this.input = new RandomAccessFile(this.file, "r");
+        this.channel = this.input.getChannel();
+    }
+
+    /**
+     * Close the file, the snapshot can not be read anymore afterwards
+     */
+    public void close() {
+        if (this.input == null) {
+            return;
+        }
+        try {
+            this.input.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        this.input = null;
+        this.channel = null;
+        this.index = null;
+    }
+
+    public boolean isOpen() {
+        return this.index != null;
+    }
+
+    public String getWorldName() {
+        return worldName;
+    }
+
+    public int getColumnCount() {
+        return (this.maxChunkX - this.minChunkX + 1) * (this.maxChunkZ - this.minChunkZ + 1);
+    }
+
+    public int getChunkX(int column) {
+        return this.minChunkX + column / (this.maxChunkZ - this.minChunkZ + 1);
+    }
+
+    public int getChunkZ(int column) {
+        return this.minChunkZ + column % (this.maxChunkZ - this.minChunkZ + 1);
+    }
+
+    /**
+     * @return the column of the chunk, or -1 if it is not part of the arena
+     */
+    public int getColumn(int chunkX, int chunkZ) {
+        if (chunkX < this.minChunkX || chunkX > this.maxChunkX || chunkZ < this.minChunkZ || chunkZ > this.maxChunkZ) {
+            return -1;
+        }
+        return (chunkX - this.minChunkX) * (this.maxChunkZ - this.minChunkZ + 1) + (chunkZ - this.minChunkZ);
+    }
+
+    public long getHash(int column, int section) {
+        return this.index.getLong(this.getIndexEntry(column, section));
+    }
+
+    private int getIndexEntry(int column, int section) {
+        return (column * SECTIONS + section) * INDEX_ENTRY_SIZE;
+    }
+
+    /**
+     * Read a section. Threadsafe, the reads do not move the position of the
+     * file.
+     *
+     * @return the blocks of the section, as (typeID << 4 | data) in the order
+     *         y, z, x
+     * @throws IOException
+     */
+    public int[] readSection(int column, int section) throws IOException {
+        int entry = this.getIndexEntry(column, section);
+        int offset = this.index.getInt(entry + 8);
+        int length = this.index.getInt(entry + 12);
+        if (length == 0) {
+            return new int[SECTION_SIZE];
+        }
+
+        ByteBuffer compressed = ByteBuffer.allocate(length);
+        while (compressed.hasRemaining()) {
+            if (this.channel.read(compressed, offset + compressed.position()) < 0) {
+                throw new IOException("Truncated section!");
+            }
+        }
+        return decodeSection(compressed.array());
+    }
+
+    // //////////////////////////
+    //
+    // Sections
+    //
+    // //////////////////////////
+
+    /**
+     * @return the blocks of a section, as (typeID << 4 | data) in the order y,
+     *         z, x
+     */
+    public static int[] getSection(ChunkSnapshot snapshot, int section) {
+        int[] values = new int[SECTION_SIZE];
+        if (snapshot.isSectionEmpty(section)) {
+            return values;
+        }
+
+        int minY = section << 4;
+        int index = 0;
+        for (int y = minY; y < minY + 16; y++) {
+            for (int z = 0; z < 16; z++) {
+                for (int x = 0; x < 16; x++) {
+                    values[index++] = (snapshot.getBlockTypeId(x, y, z) << 4) | (snapshot.getBlockData(x, y, z) & 0xF);
+                }
+            }
+        }
+        return values;
+    }
+
+    /**
+     * 64 bit FNV-1a over the blocks of a section
+     */
+    public static long hash(int[] values) {
+        long hash = 0xcbf29ce484222325L;
+        for (int value : values) {
+            hash = (hash ^ value) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    public static byte[] encodeSection(int[] values) throws IOException {
+        // build the palette
+        int[] palette = new int[SECTION_SIZE];
+        int paletteSize = 0;
+        int[] indices = new int[SECTION_SIZE];
+        short[] lookup = new short[1 << 16];
+        for (int i = 0; i < values.length; i++) {
+            int value = values[i] & 0xFFFF;
+            if (lookup[value] == 0) {
+                palette[paletteSize++] = value;
+                lookup[value] = (short) paletteSize;
+            }
+            indices[i] = lookup[value] - 1;
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+        DataOutputStream output = new DataOutputStream(bytes);
+        output.writeShort(paletteSize);
+        for (int i = 0; i < paletteSize; i++) {
+            output.writeShort(palette[i]);
+        }
+
+        // pack the indices, a single block needs no indices at all
+        int bits = getBits(paletteSize);
+        output.writeByte(bits);
+        if (bits > 0) {
+            int perLong = 64 / bits;
+            for (int start = 0; start < SECTION_SIZE; start += perLong) {
+                long packed = 0;
+                for (int i = 0; i < perLong && start + i < SECTION_SIZE; i++) {
+                    packed |= (long) indices[start + i] << (i * bits);
+                }
+                output.writeLong(packed);
+            }
+        }
+        output.close();
+
+        Deflater deflater = new Deflater();
+        try {
+            deflater.setInput(bytes.toByteArray());
+            deflater.finish();
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(256);
+            byte[] chunk = new byte[1024];
+            while (!deflater.finished()) {
+                compressed.write(chunk, 0, deflater.deflate(chunk));
+            }
+            return compressed.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static int[] decodeSection(byte[] compressed) throws IOException {
+        ByteBuffer data;
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(4096);
+            byte[] chunk = new byte[4096];
+            while (!inflater.finished()) {
+                int length = inflater.inflate(chunk);
+                if (length == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Truncated section!");
+                }
+                bytes.write(chunk, 0, length);
+            }
+            data = ByteBuffer.wrap(bytes.toByteArray());
+        } catch (DataFormatException e) {
+            throw new IOException("Broken section!", e);
+        } finally {
+            inflater.end();
+        }
+
+        int[] palette = new int[data.getShort() & 0xFFFF];
+        for (int i = 0; i < palette.length; i++) {
+            palette[i] = data.getShort() & 0xFFFF;
+        }
+
+        int[] values = new int[SECTION_SIZE];
+        int bits = data.get();
+        if (bits == 0) {
+            for (int i = 0; i < SECTION_SIZE; i++) {
+                values[i] = palette[0];
+            }
+            return values;
+        }
+
+        int perLong = 64 / bits;
+        long mask = (1L << bits) - 1;
+        for (int start = 0; start < SECTION_SIZE; start += perLong) {
+            long packed = data.getLong();
+            for (int i = 0; i < perLong && start + i < SECTION_SIZE; i++) {
+                values[start + i] = palette[(int) ((packed >>> (i * bits)) & mask)];
+            }
+        }
+        return values;
+    }
+
+    private static int getBits(int paletteSize) {
+        return (paletteSize <= 1) ? 0 : 32 - Integer.numberOfLeadingZeros(paletteSize - 1);
+    }
+
+    // //////////////////////////
+    //
+    // Writing
+    //
+    // //////////////////////////
+
+    /**
+     * Write a snapshot. The file is written next to the old one and renamed
+     * afterwards, so an open snapshot of the file must be closed before and
+     * reopened afterwards.
+     *
+     * @param hashes
+     *            the hashes per column and section
+     * @param sections
+     *            the encoded sections per column and section,
+     *            <code>null</code> for empty ones
+     * @throws IOException
+     */
+    public static void write(File file, String worldName, int minChunkX, int minChunkZ, int maxChunkX, int maxChunkZ, long[] hashes, byte[][] sections) throws IOException {
+        byte[] name = worldName.getBytes("UTF-8");
+        int offset = 4 + 4 + 2 + name.length + 4 * 4 + sections.length * INDEX_ENTRY_SIZE;
+
+        File tempFile = new File(file.getPath() + ".tmp");
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+        try {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeShort(name.length);
+            output.write(name);
+            output.writeInt(minChunkX);
+            output.writeInt(minChunkZ);
+            output.writeInt(maxChunkX);
+            output.writeInt(maxChunkZ);
+
+            for (int i = 0; i < sections.length; i++) {
+                int length = (sections[i] != null) ? sections[i].length : 0;
+                output.writeLong(hashes[i]);
+                output.writeInt(offset);
+                output.writeInt(length);
+                offset += length;
+            }
+            for (byte[] section : sections) {
+                if (section != null) {
+                    output.write(section);
+                }
+            }
+        } finally {
+            output.close();
+        }
+
+        if (file.exists() && !file.delete()) {
+            throw new IOException("Unable to replace '" + file.getName() + "'!");
+        }
+        if (!tempFile.renameTo(file)) {
+            throw new IOException("Unable to write '" + file.getName() + "'!");
+        }
+    }
+}
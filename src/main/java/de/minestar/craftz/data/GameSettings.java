@@ -33,6 +33,19 @@ public class GameSettings {
     private HashSet<Integer> nonUseableBlocks = new HashSet<Integer>(Arrays.asList(Material.DISPENSER.getId()));
     private ArrayList<Integer> lootRefillTimes = new ArrayList<Integer>(Arrays.asList(15));
 
+    private ArrayList<Integer> preGameAnnouncements = new ArrayList<Integer>(Arrays.asList(600, 300, 240, 180, 120, 60, 45, 30, 15, 10, 9, 8, 7, 6, 5, 4, 3, 2, 1));
+    private ArrayList<Integer> prePVPAnnouncements = new ArrayList<Integer>(Arrays.asList(300, 240, 180, 120, 60, 45, 30, 15));
+    private ArrayList<Integer> preDeathmatchAnnouncements = new ArrayList<Integer>(Arrays.asList(2700, 1800, 1500, 1200, 900, 600, 300, 60, 45, 30, 15, 10, 9, 8, 7, 6, 5, 4, 3, 2, 1));
+    private ArrayList<Integer> afterMatchAnnouncements = new ArrayList<Integer>(Arrays.asList(2700, 1800, 1500, 1200, 900, 600, 300, 60, 45, 30, 15, 10, 9, 8, 7, 6, 5, 4, 3, 2, 1));
+
+    private boolean lazyRefill = false;
+    private int lazyRefillRadius = 6;
+    private boolean fullRefillAtStart = true;
+
+    // the area of the arena, in blocks
+    private String arenaWorld = null;
+    private int arenaMinX, arenaMinZ, arenaMaxX, arenaMaxZ;
+
     private int currentRefill = -1;
 
     public GameSettings(String gameName) {
@@ -74,6 +87,24 @@ public class GameSettings {
                 }
             }
 
+            // load lazy refill
+            this.lazyRefill = config.getBoolean("loot.lazyRefill", this.lazyRefill);
+            this.lazyRefillRadius = config.getInt("loot.lazyRefillRadius", this.lazyRefillRadius);
+            this.fullRefillAtStart = config.getBoolean("loot.fullRefillAtStart", this.fullRefillAtStart);
+
+            // load the area
+            this.arenaWorld = config.getString("arena.world", this.arenaWorld);
+            this.arenaMinX = config.getInt("arena.minX", this.arenaMinX);
+            this.arenaMinZ = config.getInt("arena.minZ", this.arenaMinZ);
+            this.arenaMaxX = config.getInt("arena.maxX", this.arenaMaxX);
+            this.arenaMaxZ = config.getInt("arena.maxZ", this.arenaMaxZ);
+
+            // load announcements
+            this.preGameAnnouncements = this.loadAnnouncements(config, "timings.announcements.preGame", this.preGameAnnouncements);
+            this.prePVPAnnouncements = this.loadAnnouncements(config, "timings.announcements.prePVP", this.prePVPAnnouncements);
+            this.preDeathmatchAnnouncements = this.loadAnnouncements(config, "timings.announcements.preDeathmatch", this.preDeathmatchAnnouncements);
+            this.afterMatchAnnouncements = this.loadAnnouncements(config, "timings.announcements.afterMatch", this.afterMatchAnnouncements);
+
             // load breakable blocks
             this.breakableBlocks = new HashSet<Integer>();
             List<String> breakList = config.getStringList("blocks.breakable");
@@ -114,6 +145,22 @@ public class GameSettings {
         }
     }
 
+    private ArrayList<Integer> loadAnnouncements(YamlConfiguration config, String path, ArrayList<Integer> defaults) {
+        // older configs do not have any announcements
+        if (!config.contains(path)) {
+            return defaults;
+        }
+
+        ArrayList<Integer> announcements = new ArrayList<Integer>();
+        List<Integer> offsetList = config.getIntegerList(path);
+        if (offsetList != null) {
+            for (int offset : offsetList) {
+                announcements.add(offset);
+            }
+        }
+        return announcements;
+    }
+
     public void saveConfig() {
         try {
             YamlConfiguration config = new YamlConfiguration();
@@ -127,6 +174,26 @@ public class GameSettings {
             // save refilltimes
             config.set("timings.lootRefill", this.lootRefillTimes);
 
+            // save lazy refill
+            config.set("loot.lazyRefill", this.lazyRefill);
+            config.set("loot.lazyRefillRadius", this.lazyRefillRadius);
+            config.set("loot.fullRefillAtStart", this.fullRefillAtStart);
+
+            // save the area
+            if (this.arenaWorld != null) {
+                config.set("arena.world", this.arenaWorld);
+                config.set("arena.minX", this.arenaMinX);
+                config.set("arena.minZ", this.arenaMinZ);
+                config.set("arena.maxX", this.arenaMaxX);
+                config.set("arena.maxZ", this.arenaMaxZ);
+            }
+
+            // save announcements
+            config.set("timings.announcements.preGame", this.preGameAnnouncements);
+            config.set("timings.announcements.prePVP", this.prePVPAnnouncements);
+            config.set("timings.announcements.preDeathmatch", this.preDeathmatchAnnouncements);
+            config.set("timings.announcements.afterMatch", this.afterMatchAnnouncements);
+
             // save breakable blocks
             ArrayList<String> data = new ArrayList<String>();
             for (int ID : this.breakableBlocks) {
@@ -260,6 +327,96 @@ public class GameSettings {
         return "AIR";
     }
 
+    /**
+     * @return <b>true</b> if lootspots are only refilled when they are used
+     */
+    public boolean isLazyRefill() {
+        return lazyRefill;
+    }
+
+    /**
+     * @return the distance in blocks, at which players refill lazy lootspots
+     */
+    public int getLazyRefillRadius() {
+        return lazyRefillRadius;
+    }
+
+    /**
+     * @return <b>true</b> if the first refill of a match refills the unused
+     *         lootspots as well
+     */
+    public boolean isFullRefillAtStart() {
+        return fullRefillAtStart;
+    }
+
+    /**
+     * @return <b>true</b> if the area of the arena is set
+     */
+    public boolean hasArenaBounds() {
+        return arenaWorld != null;
+    }
+
+    /**
+     * Set the area of the arena, the corners may be in any order
+     *
+     * @return <b>false</b> if the area has more chunks than a snapshot can
+     *         hold, the area is left as it was
+     */
+    public boolean setArenaBounds(String worldName, int x1, int z1, int x2, int z2) {
+        if (countChunks(Math.min(x1, x2), Math.min(z1, z2), Math.max(x1, x2), Math.max(z1, z2)) > ArenaSnapshot.MAX_COLUMNS) {
+            return false;
+        }
+        this.arenaWorld = worldName;
+        this.arenaMinX = Math.min(x1, x2);
+        this.arenaMinZ = Math.min(z1, z2);
+        this.arenaMaxX = Math.max(x1, x2);
+        this.arenaMaxZ = Math.max(z1, z2);
+        return true;
+    }
+
+    /**
+     * @return the number of chunks the area of the arena touches
+     */
+    public long getArenaChunks() {
+        return countChunks(this.arenaMinX, this.arenaMinZ, this.arenaMaxX, this.arenaMaxZ);
+    }
+
+    private static long countChunks(int minX, int minZ, int maxX, int maxZ) {
+        return ((long) (maxX >> 4) - (minX >> 4) + 1) * ((long) (maxZ >> 4) - (minZ >> 4) + 1);
+    }
+
+    /**
+     * @return <b>true</b> if the location is inside of the area of the arena
+     */
+    public boolean isInArena(Location location) {
+        if (this.arenaWorld == null || !location.getWorld().getName().equalsIgnoreCase(this.arenaWorld)) {
+            return false;
+        }
+        int x = location.getBlockX();
+        int z = location.getBlockZ();
+        return x >= this.arenaMinX && x <= this.arenaMaxX && z >= this.arenaMinZ && z <= this.arenaMaxZ;
+    }
+
+    public String getArenaWorld() {
+        return arenaWorld;
+    }
+
+    public int getArenaMinX() {
+        return arenaMinX;
+    }
+
+    public int getArenaMinZ() {
+        return arenaMinZ;
+    }
+
+    public int getArenaMaxX() {
+        return arenaMaxX;
+    }
+
+    public int getArenaMaxZ() {
+        return arenaMaxZ;
+    }
+
     public int getNextRefillTime() {
         if (this.currentRefill < 0) {
             return 0;
@@ -360,6 +517,34 @@ public class GameSettings {
         this.afterMatchTime = afterMatchTime;
     }
 
+    /**
+     * @return the seconds before the start of the game, that are announced
+     */
+    public List<Integer> getPreGameAnnouncements() {
+        return preGameAnnouncements;
+    }
+
+    /**
+     * @return the seconds before pvp is enabled, that are announced
+     */
+    public List<Integer> getPrePVPAnnouncements() {
+        return prePVPAnnouncements;
+    }
+
+    /**
+     * @return the seconds before the deathmatch, that are announced
+     */
+    public List<Integer> getPreDeathmatchAnnouncements() {
+        return preDeathmatchAnnouncements;
+    }
+
+    /**
+     * @return the seconds before the return to the lobby, that are announced
+     */
+    public List<Integer> getAfterMatchAnnouncements() {
+        return afterMatchAnnouncements;
+    }
+
     public PlayerSpawn getSpectatorSpawn() {
         return spectatorSpawn;
     }
@@ -1,30 +1,52 @@
 package de.minestar.craftz.data;
 
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.bukkit.craftbukkit.v1_4_6.inventory.CraftItemStack;
 import org.bukkit.inventory.ItemStack;
 
-public class Loot {
+/**
+ * An immutable item template. Equal itemstacks share one template, so a stack
+ * of bread is only held once, no matter how many lootspots contain it. Use
+ * {@link #of(ItemStack)} to get the template of a stack.
+ */
+public final class Loot {
+
+    // the loaderthreads intern templates as well
+    private static final ConcurrentHashMap<ItemStack, Loot> templates = new ConcurrentHashMap<ItemStack, Loot>();
 
-    private transient boolean used = false;
-    private ItemStack itemStack;
+    private final ItemStack itemStack;
+    private final net.minecraft.server.v1_4_6.ItemStack handle;
 
-    public Loot(ItemStack stack) {
-        this.itemStack = stack.clone();
-        this.used = false;
+    private Loot(ItemStack stack) {
+        this.itemStack = stack;
+        this.handle = CraftItemStack.asNMSCopy(stack);
     }
 
     /**
-     * @return the used
+     * Get the shared template of an itemstack
+     *
+     * @param stack
+     * @return the template
      */
-    public boolean isUsed() {
-        return used;
+    public static Loot of(ItemStack stack) {
+        Loot loot = templates.get(stack);
+        if (loot != null) {
+            return loot;
+        }
+
+        // the key must not change, so we keep our own copy
+        ItemStack copy = stack.clone();
+        loot = new Loot(copy);
+        Loot other = templates.putIfAbsent(copy, loot);
+        return (other != null) ? other : loot;
     }
 
     /**
-     * @param used
-     *            the used to set
+     * @return the number of different templates
      */
-    public void setUsed(boolean used) {
-        this.used = used;
+    public static int getTemplateCount() {
+        return templates.size();
     }
 
     /**
@@ -49,9 +71,20 @@ public class Loot {
     }
 
     /**
-     * @return the itemstack
+     * @return a copy of the itemstack
      */
     public ItemStack getItemStack() {
         return this.itemStack.clone();
     }
+
+    /**
+     * Create a new stack for an inventory. It is copied directly from the
+     * template, without any bukkit-wrapper in between. The stack belongs to
+     * the inventory afterwards, players change it, so it is never reused.
+     *
+     * @return a new NMS-itemstack
+     */
+    public net.minecraft.server.v1_4_6.ItemStack createHandle() {
+        return this.handle.cloneItemStack();
+    }
 }
@@ -0,0 +1,117 @@
+package de.minestar.craftz.data;
+
+import java.io.File;
+
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import de.minestar.craftz.Core;
+
+public class PluginSettings {
+
+    private File configFile;
+
+    private long mailboxBudget = 2000000L;
+    private long workBudget = 5000000L;
+    private long refillBudget = 1000000L;
+    private long repairBudget = 1000000L;
+    private long rollbackBudget = 2000000L;
+    private int loaderThreads = 0;
+
+    public PluginSettings() {
+        this.configFile = new File(Core.INSTANCE.getDataFolder(), "config.yml");
+        this.loadConfig();
+    }
+
+    private void loadConfig() {
+        try {
+            YamlConfiguration config = new YamlConfiguration();
+            if (!this.configFile.exists()) {
+                this.saveConfig();
+            }
+
+            // init YAML
+            config.load(this.configFile);
+
+            // load budgets
+            this.mailboxBudget = config.getLong("budgets.mailboxNanos", this.mailboxBudget);
+            this.workBudget = config.getLong("budgets.workNanos", this.workBudget);
+            this.refillBudget = config.getLong("budgets.refillNanos", this.refillBudget);
+            this.repairBudget = config.getLong("budgets.repairNanos", this.repairBudget);
+            this.rollbackBudget = config.getLong("budgets.rollbackNanos", this.rollbackBudget);
+
+            // load threads
+            this.loaderThreads = config.getInt("threads.loader", this.loaderThreads);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    public void saveConfig() {
+        try {
+            YamlConfiguration config = new YamlConfiguration();
+
+            // save budgets
+            config.set("budgets.mailboxNanos", this.mailboxBudget);
+            config.set("budgets.workNanos", this.workBudget);
+            config.set("budgets.refillNanos", this.refillBudget);
+            config.set("budgets.repairNanos", this.repairBudget);
+            config.set("budgets.rollbackNanos", this.rollbackBudget);
+
+            // save threads
+            config.set("threads.loader", this.loaderThreads);
+
+            // save to file
+            config.save(this.configFile);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * @return the time in nanoseconds, that the mailbox may use per tick
+     */
+    public long getMailboxBudget() {
+        return mailboxBudget;
+    }
+
+    /**
+     * @return the time in nanoseconds, that the bulk work may use per tick
+     */
+    public long getWorkBudget() {
+        return workBudget;
+    }
+
+    /**
+     * @return the time in nanoseconds, that a lootrefill may use per tick
+     */
+    public long getRefillBudget() {
+        return refillBudget;
+    }
+
+    /**
+     * @return the time in nanoseconds, that the check of the lootspots may
+     *         use per tick
+     */
+    public long getRepairBudget() {
+        return repairBudget;
+    }
+
+    /**
+     * @return the time in nanoseconds, that the reset of an arena may use per
+     *         tick
+     */
+    public long getRollbackBudget() {
+        return rollbackBudget;
+    }
+
+    /**
+     * @return the number of threads to load the arenas, one per core if not
+     *         set
+     */
+    public int getLoaderThreads() {
+        if (loaderThreads <= 0) {
+            return Runtime.getRuntime().availableProcessors();
+        }
+        return loaderThreads;
+    }
+}
@@ -2,26 +2,29 @@ package de.minestar.craftz.data;
 
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Random;
 
 import org.bukkit.ChatColor;
+import org.bukkit.Chunk;
 import org.bukkit.Location;
-import org.bukkit.entity.Item;
+import org.bukkit.block.Block;
+import org.bukkit.entity.Entity;
 
 import de.minestar.craftz.Core;
 import de.minestar.craftz.manager.LootManager;
+import de.minestar.craftz.manager.RollbackManager;
+import de.minestar.craftz.manager.SnapshotManager;
 import de.minestar.craftz.manager.Scheduler;
+import de.minestar.craftz.manager.TickScheduler;
+import de.minestar.craftz.threads.Countdown;
+import de.minestar.craftz.threads.LazyRefillThread;
 import de.minestar.craftz.threads.LootRefillThread;
 import de.minestar.craftz.threads.ReturnToLobbyThread;
 import de.minestar.craftz.threads.StartDeathmatchThread;
 import de.minestar.craftz.threads.StartGameThread;
 import de.minestar.craftz.threads.StartPVPThread;
-import de.minestar.craftz.threads.TimerDeathmatchStart;
-import de.minestar.craftz.threads.TimerGameStart;
-import de.minestar.craftz.threads.TimerPVPStart;
-import de.minestar.craftz.threads.TimerReturnToLobby;
+import de.minestar.craftz.threads.WorkBatch;
 import de.minestar.craftz.utils.Chat;
+import de.minestar.craftz.utils.SplitRandom;
 
 public class SurvivalGame {
 
@@ -35,15 +38,20 @@ public class SurvivalGame {
 
     private LootManager lootManager;
     private Scheduler scheduler;
+    private final SplitRandom random = new SplitRandom();
+    private WorkBatch refillBatch = null;
 
-    private ArrayList<Item> droppedItems = new ArrayList<Item>();
-    private HashSet<BlockVector> changedBlocks = new HashSet<BlockVector>();
+    private RollbackManager rollbackManager;
+    private SnapshotManager snapshotManager;
+    private boolean resetting = false;
 
     public SurvivalGame(String gameName) {
         this.gameName = gameName;
-        this.scheduler = new Scheduler();
+        this.scheduler = new Scheduler(this.gameName, Core.tickScheduler, Core.countdownManager, Core.workExecutor);
         this.settings = new GameSettings(this.gameName);
-        this.lootManager = new LootManager(this.gameName);
+        this.lootManager = new LootManager(this.gameName, this.random);
+        this.snapshotManager = new SnapshotManager(this.gameName);
+        this.rollbackManager = new RollbackManager(this, this.snapshotManager);
         this.completePlayerList = new HashMap<String, SurvivalPlayer>();
         this.playerList = new HashMap<String, SurvivalPlayer>();
         this.spectatorList = new HashMap<String, SurvivalPlayer>();
@@ -59,11 +67,25 @@ public class SurvivalGame {
         this.gameState = GameState.LOBBY;
         this.scheduler.cancelTasks();
         this.settings.reset();
-        this.lootManager.clearAllLootSpots();
-        this.teleportAllToLobbySpawn();
-        this.showAllPlayers();
-        this.resetPlayers();
-        this.resetArea();
+
+        // reset the players first ...
+        WorkBatch playerBatch = new WorkBatch(WorkBatch.PRIORITY_HIGH);
+        this.teleportAllToLobbySpawn(playerBatch);
+        this.showAllPlayers(playerBatch);
+        this.resetPlayers(playerBatch);
+        this.scheduler.submitWork(playerBatch);
+
+        // ... and the arena afterwards, no match starts until it is done
+        this.resetting = true;
+        WorkBatch arenaBatch = new WorkBatch(WorkBatch.PRIORITY_LOW);
+        this.lootManager.clearAllLootSpots(arenaBatch);
+        arenaBatch.setCallback(new Runnable() {
+            @Override
+            public void run() {
+                resetArea();
+            }
+        });
+        this.scheduler.submitWork(arenaBatch);
     }
 
     public void goToPreGame() {
@@ -72,17 +94,19 @@ public class SurvivalGame {
         // make everyone a player
         for (SurvivalPlayer player : this.completePlayerList.values()) {
             player.makePlayer();
-            player.resetPlayer();
             player.setReady(false);
             this.playerList.put(player.getPlayerName(), player);
         }
 
-        // teleport everyone to the gamespawn
-        this.teleportAllToGameSpawn();
+        // reset and teleport everyone to the gamespawn
+        WorkBatch playerBatch = new WorkBatch(WorkBatch.PRIORITY_HIGH);
+        this.resetPlayers(playerBatch);
+        this.teleportAllToGameSpawn(playerBatch);
+        this.scheduler.submitWork(playerBatch);
 
         // start threads
-        this.scheduler.scheduleDelayedTask(new StartGameThread(this), this.settings.getPreGameTime() * 1000);
-        this.scheduler.scheduleDelayedRepeatingTask(new TimerGameStart(this, System.currentTimeMillis() + ((this.settings.getPreGameTime()) * 1000)), 1000, 1001);
+        this.scheduler.scheduleDelayedTask(new StartGameThread(this), this.settings.getPreGameTime() * TickScheduler.TICKS_PER_SECOND);
+        this.scheduler.startCountdown(new Countdown(this, GameState.PRE_GAME, this.settings.getPreGameTime(), this.settings.getPreGameAnnouncements(), "The game will start in "));
 
         // TODO: reset time & weather
         // this.settings.getSpectatorSpawn().getLocation().getWorld().setTime(2000);
@@ -97,11 +121,14 @@ public class SurvivalGame {
         this.gameState = GameState.PRE_PVP;
 
         // refill loot
-        this.refillLoot();
+        this.refillLoot(null, this.settings.isFullRefillAtStart());
+        if (this.settings.isLazyRefill() && this.settings.getLazyRefillRadius() > 0) {
+            this.scheduler.scheduleDelayedRepeatingTask(new LazyRefillThread(this), 10, 10);
+        }
 
         // start threads
-        this.scheduler.scheduleDelayedTask(new StartPVPThread(this), this.settings.getPrePVPTime() * 1000);
-        this.scheduler.scheduleDelayedRepeatingTask(new TimerPVPStart(this, System.currentTimeMillis() + (this.settings.getPrePVPTime()) * 1000), 1000, 1001);
+        this.scheduler.scheduleDelayedTask(new StartPVPThread(this), this.settings.getPrePVPTime() * TickScheduler.TICKS_PER_SECOND);
+        this.scheduler.startCountdown(new Countdown(this, GameState.PRE_PVP, this.settings.getPrePVPTime(), this.settings.getPrePVPAnnouncements(), "PVP will be enabled in "));
 
         // print info
         this.broadcastInfo("PVP will be enabled in " + Chat.secondsToMinutes(this.settings.getPrePVPTime()) + "!");
@@ -111,8 +138,8 @@ public class SurvivalGame {
         this.gameState = GameState.SURVIVAL;
 
         // start threads
-        this.scheduler.scheduleDelayedTask(new StartDeathmatchThread(this), this.settings.getPreDeathmatchTime() * 1000);
-        this.scheduler.scheduleDelayedRepeatingTask(new TimerDeathmatchStart(this, System.currentTimeMillis() + (this.settings.getPreDeathmatchTime() * 1000)), 1000, 1001);
+        this.scheduler.scheduleDelayedTask(new StartDeathmatchThread(this), this.settings.getPreDeathmatchTime() * TickScheduler.TICKS_PER_SECOND);
+        this.scheduler.startCountdown(new Countdown(this, GameState.SURVIVAL, this.settings.getPreDeathmatchTime(), this.settings.getPreDeathmatchAnnouncements(), "Deathmatch will start in "));
 
         // print info
         this.broadcastInfo("Deathmatch will start in " + Chat.secondsToMinutes(this.settings.getPreDeathmatchTime()) + "!");
@@ -120,18 +147,24 @@ public class SurvivalGame {
 
     public void goToDeathmatch() {
         this.gameState = GameState.DEATHMATCH;
-        this.teleportAllToGameSpawn();
+
+        // teleport everyone to the gamespawn
+        WorkBatch playerBatch = new WorkBatch(WorkBatch.PRIORITY_HIGH);
+        this.teleportAllToGameSpawn(playerBatch);
+        this.scheduler.submitWork(playerBatch);
     }
 
     public void goToEnd() {
         this.gameState = GameState.END;
 
         // start threads
-        this.scheduler.scheduleDelayedTask(new ReturnToLobbyThread(this), this.settings.getAfterMatchTime() * 1000);
-        this.scheduler.scheduleDelayedRepeatingTask(new TimerReturnToLobby(this, System.currentTimeMillis() + (this.settings.getAfterMatchTime() * 1000)), 1000, 1001);
+        this.scheduler.scheduleDelayedTask(new ReturnToLobbyThread(this), this.settings.getAfterMatchTime() * TickScheduler.TICKS_PER_SECOND);
+        this.scheduler.startCountdown(new Countdown(this, GameState.END, this.settings.getAfterMatchTime(), this.settings.getAfterMatchAnnouncements(), "The game will return to the lobby in "));
 
         // show all players
-        this.showAllPlayers();
+        WorkBatch playerBatch = new WorkBatch(WorkBatch.PRIORITY_HIGH);
+        this.showAllPlayers(playerBatch);
+        this.scheduler.submitWork(playerBatch);
 
         // print info
         this.broadcastInfo("The game will return to the lobby in " + Chat.secondsToMinutes(this.settings.getPreDeathmatchTime()) + "!");
@@ -149,6 +182,8 @@ public class SurvivalGame {
         this.broadcast(ChatColor.RED, "Game has been closed by an admin!");
         this.broadcast(ChatColor.RED, LIMITER);
         this.goToLobby();
+        this.scheduler.finishWork();
+        this.rollbackManager.finish();
         this.cleanUp();
     }
 
@@ -158,20 +193,37 @@ public class SurvivalGame {
         this.spectatorList.clear();
         this.scheduler.cancelTasks();
         this.settings.reset();
-        this.lootManager.clearAllLootSpots();
     }
 
-    public void addItemUpdate(Item item) {
-        this.droppedItems.add(item);
+    /**
+     * Remember an entity, that is removed when the arena is reset
+     *
+     * @param entity
+     */
+    public void addEntityUpdate(Entity entity) {
+        this.rollbackManager.addEntity(entity);
     }
 
-    public void addBlockUpdate(Location location) {
-        BlockVector vector = new BlockVector(location);
-        if (this.changedBlocks.contains(vector)) {
-            return;
-        } else {
-            this.changedBlocks.add(vector);
-        }
+    /**
+     * Remember a block, before it is changed
+     *
+     * @param block
+     */
+    public void addBlockUpdate(Block block) {
+        this.rollbackManager.addBlock(block);
+    }
+
+    /**
+     * Remember a block, that is already changed
+     *
+     * @param block
+     * @param typeID
+     *            the type before the change
+     * @param subID
+     *            the data before the change
+     */
+    public void addBlockUpdate(Block block, int typeID, byte subID) {
+        this.rollbackManager.addBlock(block, typeID, subID);
     }
 
     // /////////////////////////////////////////////////////////
@@ -181,31 +233,26 @@ public class SurvivalGame {
     // /////////////////////////////////////////////////////////
 
     private void resetArea() {
-        // // broadcast info
-        // this.broadcast(ChatColor.RED, "Resetting items...");
-        //
-        // // reset items
-        // for (Item item : this.droppedItems) {
-        // item.getWorld().loadChunk(item.getLocation().getChunk());
-        // if (item != null && !item.isDead() && item.isValid()) {
-        // item.remove();
-        // }
-        // }
-        //
-        // // broadcast info
-        // this.broadcast(ChatColor.RED, "Resetting blocks...");
-        //
-        // // reset blocks
-        // for (BlockVector vector : this.changedBlocks) {
-        // vector.getLocation().getWorld().getBlockAt(vector.getLocation()).setTypeIdAndData(vector.getTypeID(), vector.getSubData(), false);
-        // }
-        //
-        // // clear lists
-        // this.droppedItems.clear();
-        // this.changedBlocks.clear();
-        //
-        // // broadcast info
-        // this.broadcast(ChatColor.GREEN, "Reset done!");
+        // restore the blocks and remove the items
+        this.broadcast(ChatColor.GRAY, "Resetting the arena...");
+        this.rollbackManager.start(new Runnable() {
+            @Override
+            public void run() {
+                resetting = false;
+
+                // everyone may have been ready meanwhile
+                if (isGameInLobby() && !completePlayerList.isEmpty()) {
+                    checkForAllReady();
+                }
+            }
+        });
+    }
+
+    /**
+     * @return <b>true</b> while the arena is reset after a match
+     */
+    public boolean isResetting() {
+        return resetting;
     }
 
     public void togglePlayerReady(SurvivalPlayer player) {
@@ -237,30 +284,136 @@ public class SurvivalGame {
                 return;
             }
 
+            if (this.isResetting()) {
+                this.broadcast(ChatColor.RED + "The arena is still being reset!");
+                return;
+            }
+
             Core.gameManager.startGame(this.getGameName());
         } else {
             this.broadcast(ChatColor.DARK_GRAY, ready + " of " + this.completePlayerList.size() + " players are ready!");
         }
     }
 
-    private void resetPlayers() {
+    private void resetPlayers(WorkBatch batch) {
         for (SurvivalPlayer player : this.completePlayerList.values()) {
-            player.resetPlayer();
+            batch.addJob(new PlayerJob(player) {
+                @Override
+                protected void execute(SurvivalPlayer player) {
+                    player.resetPlayer();
+                }
+            });
         }
     }
 
-    public void refillLoot() {
-        this.lootManager.refillLootspots();
+    /**
+     * Refill the used lootspots and schedule the next refill
+     *
+     * @param message
+     *            the info to broadcast once the refill is done, may be
+     *            <code>null</code>
+     */
+    public void refillLoot(String message) {
+        this.refillLoot(message, false);
+    }
+
+    private void refillLoot(String message, boolean fullRefill) {
+        this.startRefill(message, fullRefill, null);
+        this.scheduleNextRefill();
+    }
+
+    /**
+     * Refill the lootspots in a wave over the next ticks, starting next to the
+     * players. Unused lootspots are skipped, unless it is a full refill.
+     *
+     * @param message
+     *            the info to broadcast once the wave is done, may be
+     *            <code>null</code>
+     * @param fullRefill
+     *            refill the unused lootspots as well
+     * @param callback
+     *            run once the wave is done, may be <code>null</code>
+     */
+    public void startRefill(final String message, boolean fullRefill, final Runnable callback) {
+        if (this.settings.isLazyRefill()) {
+            this.lootManager.invalidateLootspots(fullRefill);
+            if (message != null) {
+                this.broadcastInfo(message);
+            }
+            if (callback != null) {
+                callback.run();
+            }
+            return;
+        }
 
+        // the new wave replaces the old one
+        if (this.refillBatch != null) {
+            this.refillBatch.cancel();
+        }
+
+        ArrayList<Location> locations = new ArrayList<Location>();
+        for (SurvivalPlayer player : this.playerList.values()) {
+            Location location = player.getLocation();
+            if (location != null) {
+                locations.add(location);
+            }
+        }
+
+        this.refillBatch = new WorkBatch(WorkBatch.PRIORITY_NORMAL);
+        this.refillBatch.setBudget(Core.settings.getRefillBudget());
+        this.lootManager.refillLootspots(this.refillBatch, locations, fullRefill);
+        this.refillBatch.setCallback(new Runnable() {
+            @Override
+            public void run() {
+                if (message != null && (isGameInPrePVP() || isGameInSurvival())) {
+                    broadcastInfo(message);
+                }
+                if (callback != null) {
+                    callback.run();
+                }
+            }
+        });
+        this.scheduler.submitWork(this.refillBatch);
+    }
+
+    private void scheduleNextRefill() {
         int refillTime = this.settings.getNextRefillTime();
         if (refillTime > 0) {
-            this.scheduler.scheduleDelayedTask(new LootRefillThread(this), (refillTime + (new Random()).nextInt(180)) * 1000);
+            this.scheduler.scheduleDelayedTask(new LootRefillThread(this), (refillTime + this.random.nextInt(180)) * TickScheduler.TICKS_PER_SECOND);
         }
     }
 
-    private void showAllPlayers() {
+    /**
+     * Apply the lootspot operations, that waited for the chunk. Lazy
+     * lootspots are only refilled, when they are used.
+     *
+     * @param chunk
+     */
+    public void onChunkLoad(Chunk chunk) {
+        this.lootManager.onChunkLoad(chunk, !this.settings.isLazyRefill());
+    }
+
+    /**
+     * Refill the stale lootspots around all players
+     */
+    public void refreshLootNearPlayers() {
+        int radius = this.settings.getLazyRefillRadius();
+        for (SurvivalPlayer player : this.playerList.values()) {
+            Location location = player.getLocation();
+            if (location != null) {
+                this.lootManager.refreshLootspots(location, radius);
+            }
+        }
+    }
+
+    private void showAllPlayers(WorkBatch batch) {
         for (SurvivalPlayer player : this.completePlayerList.values()) {
-            player.show();
+            batch.addJob(new PlayerJob(player) {
+                @Override
+                protected void execute(SurvivalPlayer player) {
+                    player.show();
+                }
+            });
         }
     }
 
@@ -357,14 +510,14 @@ public class SurvivalGame {
     //
     // /////////////////////////////////////////////////////////
 
-    private void teleportAllToLobbySpawn() {
+    private void teleportAllToLobbySpawn(WorkBatch batch) {
         // teleport
         for (SurvivalPlayer player : this.completePlayerList.values()) {
-            player.teleport(this.settings.getLobbySpawn());
+            this.teleportLater(batch, player, this.settings.getLobbySpawn());
         }
     }
 
-    private void teleportAllToGameSpawn() {
+    private void teleportAllToGameSpawn(WorkBatch batch) {
         // write spawns into arraylist for randomized use
         ArrayList<PlayerSpawn> unusedSpawns = new ArrayList<PlayerSpawn>();
         for (PlayerSpawn spawn : this.settings.getPlayerSpawns()) {
@@ -372,7 +525,6 @@ public class SurvivalGame {
         }
 
         // teleport
-        Random random = new Random();
         for (SurvivalPlayer player : this.completePlayerList.values()) {
             if (unusedSpawns.size() == 0) {
                 for (PlayerSpawn spawn : this.settings.getPlayerSpawns()) {
@@ -381,16 +533,25 @@ public class SurvivalGame {
             }
             if (player.isPlayer()) {
                 // player = teleport to random spawnpoint
-                int index = (int) (random.nextDouble() * unusedSpawns.size());
-                player.teleport(unusedSpawns.get(index));
+                int index = this.random.nextInt(unusedSpawns.size());
+                this.teleportLater(batch, player, unusedSpawns.get(index));
                 unusedSpawns.remove(index);
             } else {
                 // spectator = teleport to spectatorspawn
-                player.teleport(this.settings.getSpectatorSpawn());
+                this.teleportLater(batch, player, this.settings.getSpectatorSpawn());
             }
         }
     }
 
+    private void teleportLater(WorkBatch batch, SurvivalPlayer player, final PlayerSpawn spawn) {
+        batch.addJob(new PlayerJob(player) {
+            @Override
+            protected void execute(SurvivalPlayer player) {
+                player.teleport(spawn);
+            }
+        });
+    }
+
     // /////////////////////////////////////////////////////////
     //
     // Methods for chat
@@ -510,6 +671,14 @@ public class SurvivalGame {
         return lootManager;
     }
 
+    public RollbackManager getRollbackManager() {
+        return rollbackManager;
+    }
+
+    public SnapshotManager getSnapshotManager() {
+        return snapshotManager;
+    }
+
     public String getGameName() {
         return gameName;
     }
@@ -530,4 +699,25 @@ public class SurvivalGame {
     public boolean equals(SurvivalGame otherGame) {
         return otherGame.gameName.equalsIgnoreCase(this.gameName);
     }
+
+    /**
+     * A job for a single player, that is skipped if the player has left the
+     * game in the meantime
+     */
+    private abstract class PlayerJob implements Runnable {
+        private final SurvivalPlayer player;
+
+        public PlayerJob(SurvivalPlayer player) {
+            this.player = player;
+        }
+
+        @Override
+        public void run() {
+            if (completePlayerList.get(this.player.getPlayerName()) == this.player) {
+                this.execute(this.player);
+            }
+        }
+
+        protected abstract void execute(SurvivalPlayer player);
+    }
 }
@@ -137,6 +137,16 @@ public class SurvivalPlayer implements Comparable<SurvivalPlayer> {
         }
     }
 
+    /**
+     * @return the location of the player, or <code>null</code> if the player is offline
+     */
+    public Location getLocation() {
+        if (this.bukkitPlayer == null || !this.bukkitPlayer.isOnline()) {
+            return null;
+        }
+        return this.bukkitPlayer.getLocation();
+    }
+
     public void updateBukkitPlayer() {
         // update the bukkitplayer
         Player player = Bukkit.getPlayerExact(playerName);
@@ -1,77 +1,373 @@
 package de.minestar.craftz.data.loot;
 
-import java.io.File;
 import java.util.ArrayList;
-import java.util.Random;
+import java.util.Arrays;
+import java.util.List;
+
+import net.minecraft.server.v1_4_6.IInventory;
+import net.minecraft.server.v1_4_6.TileEntity;
+import net.minecraft.server.v1_4_6.WorldServer;
 
 import org.bukkit.ChatColor;
 import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.block.Block;
+import org.bukkit.craftbukkit.v1_4_6.CraftWorld;
 import org.bukkit.craftbukkit.v1_4_6.inventory.CraftInventory;
+import org.bukkit.inventory.ItemStack;
 
 import de.minestar.craftz.data.Loot;
+import de.minestar.craftz.utils.AliasTable;
 import de.minestar.craftz.utils.Chat;
-import de.minestar.craftz.utils.InventoryHandler;
-import de.minestar.craftz.utils.LocationUtils;
+import de.minestar.craftz.utils.SplitRandom;
 
 public abstract class AbstractLootspot {
 
-    protected final File dataFolder;
+    protected final LootArchive archive;
+    protected final LootPools pools;
     protected final Location location;
     protected ArrayList<Loot> lootList = new ArrayList<Loot>();
-    protected final Random random;
+    protected final SplitRandom random;
 
     protected final int INVENTORY_SIZE;
     protected final int BLOCK_ID;
     protected final byte SUB_ID;
 
-    public AbstractLootspot(File dataFolder, Location location, ArrayList<Loot> lootList, int blockID, byte subID, int invSize) {
-        this.dataFolder = dataFolder;
+    private int generation = 0;
+    private String poolName = null;
+
+    // set, once a player may have changed the inventory since the last refill
+    private boolean dirty = true;
+
+    private LootTable lootTable = null;
+    private final int[] slots;
+    private final Loot[] drawnLoot;
+    private final net.minecraft.server.v1_4_6.ItemStack[] contents;
+
+    // the container is cached, as long as the tileentity stays the same
+    private TileEntity tileEntity = null;
+    private CraftInventory inventory = null;
+
+    public AbstractLootspot(LootArchive archive, LootPools pools, Location location, ArrayList<Loot> lootList, int blockID, byte subID, int invSize, SplitRandom random) {
+        this.archive = archive;
+        this.pools = pools;
         this.location = location;
         this.lootList = lootList;
         this.BLOCK_ID = blockID;
         this.SUB_ID = subID;
         this.INVENTORY_SIZE = invSize;
-        this.random = new Random();
+        this.random = random;
+        this.slots = new int[invSize];
+        for (int i = 0; i < invSize; i++) {
+            this.slots[i] = i;
+        }
+        this.drawnLoot = new Loot[invSize];
+        this.contents = new net.minecraft.server.v1_4_6.ItemStack[invSize];
+    }
+
+    /**
+     * @return the distribution of the number of items, starting with 1 item
+     */
+    protected abstract AliasTable getAmountTable();
+
+    /**
+     * @return the number of items for the next refill
+     */
+    protected int sampleAmount() {
+        return this.getAmountTable().sample(this.random) + 1;
+    }
+
+    /**
+     * Get the inventory of the lootspot. The handle is reused, until the
+     * tileentity at the location changes. A missing block is recreated.
+     *
+     * @return the inventory, or <code>null</code> if there is none
+     */
+    protected CraftInventory getCraftInventory() {
+        TileEntity current = getTileEntity(this.location);
+        if (this.inventory != null && current == this.tileEntity) {
+            return this.inventory;
+        }
+
+        // the block has changed
+        this.tileEntity = null;
+        this.inventory = null;
+        current = this.recreateBlock(this.location, current);
+        if (!(current instanceof IInventory)) {
+            return null;
+        }
+
+        this.tileEntity = current;
+        this.inventory = new CraftInventory((IInventory) current);
+        return this.inventory;
+    }
+
+    protected static TileEntity getTileEntity(Location location) {
+        WorldServer world = ((CraftWorld) location.getWorld()).getHandle();
+        return world.getTileEntity(location.getBlockX(), location.getBlockY(), location.getBlockZ());
+    }
+
+    /**
+     * Recreate the block, if it is missing
+     *
+     * @param location
+     * @param current
+     *            the current tileentity at the location
+     * @return the tileentity at the location afterwards
+     */
+    protected final TileEntity recreateBlock(Location location, TileEntity current) {
+        Block block = location.getBlock();
+        if (block.getTypeId() == this.BLOCK_ID) {
+            return current;
+        }
+        block.setType(Material.getMaterial(this.BLOCK_ID));
+        return getTileEntity(location);
+    }
+
+    public void showLoot() {
+        CraftInventory inventory = this.getCraftInventory();
+        if (inventory == null) {
+            return;
+        }
+
+        int index = 0;
+        for (Loot loot : this.getUsedLoot()) {
+            if (index >= this.contents.length) {
+                break;
+            }
+            this.contents[index++] = loot.createHandle();
+        }
+        this.writeContents(inventory);
+        this.dirty = true;
+    }
+
+    public void clearLootspot() {
+        CraftInventory inventory = this.getCraftInventory();
+        if (inventory == null) {
+            return;
+        }
+        inventory.clear();
+        this.dirty = true;
+    }
+
+    public void updateLootContentsFromInventory() {
+        CraftInventory inventory = this.getCraftInventory();
+        if (inventory == null) {
+            return;
+        }
+
+        this.lootList.clear();
+        this.lootList.addAll(this.getInventoryLoot());
+        this.invalidateLootTable();
+        this.dirty = true;
+    }
+
+    /**
+     * Add loot to the own loot of this lootspot
+     *
+     * @param loot
+     */
+    public void addLoot(List<Loot> loot) {
+        this.lootList.addAll(loot);
+        this.invalidateLootTable();
+    }
+
+    /**
+     * @return the items, that are currently in the inventory
+     */
+    public List<Loot> getInventoryLoot() {
+        List<Loot> loot = new ArrayList<Loot>();
+        CraftInventory inventory = this.getCraftInventory();
+        if (inventory == null) {
+            return loot;
+        }
+
+        for (ItemStack stack : inventory.getContents()) {
+            if (stack == null || stack.getType().equals(Material.AIR)) {
+                continue;
+            }
+            loot.add(Loot.of(stack));
+        }
+        return loot;
+    }
+
+    /**
+     * Use the loot of a pool. The own loot is removed, so it does not
+     * override the pool.
+     *
+     * @param poolName
+     *            the name of the pool, or <code>null</code> for no pool
+     */
+    public void usePool(String poolName) {
+        this.setPoolName(poolName);
+        this.lootList.clear();
+        this.invalidateLootTable();
+    }
+
+    /**
+     * @param poolName
+     *            the name of the pool, or <code>null</code> for no pool
+     */
+    public void setPoolName(String poolName) {
+        this.poolName = poolName;
+    }
+
+    /**
+     * @return the name of the pool, or <code>null</code> if there is none
+     */
+    public String getPoolName() {
+        return poolName;
+    }
+
+    /**
+     * The own loot overrides the pool
+     */
+    private LootPool getUsedPool() {
+        if (!this.lootList.isEmpty() || this.poolName == null) {
+            return null;
+        }
+        return this.pools.getPool(this.poolName);
     }
 
-    protected abstract CraftInventory getCraftInventory();
+    private List<Loot> getUsedLoot() {
+        LootPool pool = this.getUsedPool();
+        return (pool != null) ? pool.getLoot() : this.lootList;
+    }
+
+    /**
+     * Draw random loot into the (empty) contents
+     */
+    private void fillContents() {
+        int amount = this.getLootTable().sample(this.random, this.sampleAmount(), this.drawnLoot);
+
+        // choose the slots with a partial Fisher-Yates shuffle
+        for (int i = 0; i < amount; i++) {
+            int j = i + this.random.nextInt(this.slots.length - i);
+            int slot = this.slots[j];
+            this.slots[j] = this.slots[i];
+            this.slots[i] = slot;
+
+            this.contents[slot] = this.drawnLoot[i].createHandle();
+            this.drawnLoot[i] = null;
+        }
+    }
 
-    protected abstract void fillWithRandomItems();
+    /**
+     * Write all slots straight into the container and clear the contents
+     * afterwards
+     */
+    private void writeContents(CraftInventory inventory) {
+        IInventory handle = inventory.getInventory();
+        for (int slot = 0; slot < this.contents.length; slot++) {
+            handle.setItem(slot, this.contents[slot]);
+        }
+        handle.update();
+        Arrays.fill(this.contents, null);
+    }
 
-    public abstract void showLoot();
+    public final LootTable getLootTable() {
+        LootPool pool = this.getUsedPool();
+        if (pool != null) {
+            return pool.getLootTable();
+        }
 
-    public abstract void clearLootspot();
+        if (this.lootTable == null) {
+            this.lootTable = new LootTable(this.lootList);
+        }
+        return this.lootTable;
+    }
 
-    public abstract void updateLootContentsFromInventory();
+    /**
+     * Must be called after the own lootlist has changed
+     */
+    protected final void invalidateLootTable() {
+        this.lootTable = null;
+    }
 
     public final Location getLocation() {
         return location;
     }
 
+    public final int getBlockID() {
+        return BLOCK_ID;
+    }
+
+    public final byte getSubID() {
+        return SUB_ID;
+    }
+
+    /**
+     * @return the other half of a doublechest, or <code>null</code> if there
+     *         is none
+     */
+    public Location getPartnerLocation() {
+        return null;
+    }
+
     public final ArrayList<Loot> getLoot() {
         return lootList;
     }
 
     public final void respawnLoot() {
-        this.clearLootspot();
-        this.fillWithRandomItems();
+        CraftInventory inventory = this.getCraftInventory();
+        if (inventory == null) {
+            return;
+        }
+
+        // every slot is written, so there is nothing to clear before
+        this.fillContents();
+        this.writeContents(inventory);
+        this.dirty = false;
     }
 
-    public final void saveLoot() {
-        File file = new File(this.dataFolder, LocationUtils.toString(this.location, this.BLOCK_ID + "_" + this.SUB_ID) + ".dat");
-        file.mkdir();
-        if (file.exists()) {
-            file.delete();
+    /**
+     * Respawn the loot, if it is older than the given refillgeneration and
+     * was used since the last refill
+     *
+     * @param generation
+     * @param force
+     *            respawn the loot, even if it was not used
+     * @return <b>true</b> if the loot was respawned, otherwise <b>false</b>
+     */
+    public final boolean refresh(int generation, boolean force) {
+        if (this.generation == generation) {
+            return false;
+        }
+        this.generation = generation;
+        if (!this.dirty && !force) {
+            return false;
         }
+        this.respawnLoot();
+        return true;
+    }
+
+    public final int getGeneration() {
+        return generation;
+    }
 
+    /**
+     * Mark the loot as used, so it is respawned on the next refill
+     */
+    public final void markDirty() {
+        this.dirty = true;
+    }
+
+    public final boolean isDirty() {
+        return dirty;
+    }
+
+    /**
+     * Save the own loot and the pool of this lootspot
+     */
+    public final void saveLoot() {
         try {
-            CraftInventory inventory = this.getCraftInventory();
-            if (inventory != null) {
-                InventoryHandler.saveInventory(file, inventory);
-            } else {
-                Chat.printMessage(ChatColor.RED, "Could not get lootinventory!");
+            net.minecraft.server.v1_4_6.ItemStack[] items = new net.minecraft.server.v1_4_6.ItemStack[this.lootList.size()];
+            for (int i = 0; i < items.length; i++) {
+                items[i] = this.lootList.get(i).createHandle();
             }
+            this.archive.save(this.location, this.getPartnerLocation(), this.BLOCK_ID, this.SUB_ID, this.poolName, items);
         } catch (Exception e) {
+            Chat.printMessage(ChatColor.RED, "Could not save lootspot!");
             e.printStackTrace();
         }
     }
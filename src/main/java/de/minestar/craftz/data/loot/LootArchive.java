@@ -0,0 +1,513 @@
+package de.minestar.craftz.data.loot;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import net.minecraft.server.v1_4_6.ItemStack;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+
+import de.minestar.craftz.utils.BlockKeys;
+import de.minestar.craftz.utils.InventoryHandler;
+
+/**
+ * All lootspots of one arena in a single file. The file starts with an index
+ * of packed blockkeys to record offsets, followed by the records. Saves append
+ * a new record to the end (the old one stays until the next compaction), so a
+ * save never rewrites the file.
+ * <p>
+ * Header: int magic | int version | int tailOffset | short worlds | worldnames
+ * | int entries | entries of (long key, int offset) <br>
+ * Record: int length | worldname | int x | int y | int z | int typeID | byte
+ * subID | byte partner | poolname | int itemLength | items (uncompressed NBT)
+ * <br>
+ * The partner is the side of the other half of a doublechest (0 for none).
+ * Version 1 had no poolname and version 2 no partner, such archives are
+ * rewritten on the next save.
+ */
+public class LootArchive {
+
+    public static final String FILE_NAME = "loot.archive";
+
+    private static final int MAGIC = 0x4C4F4F54;
+    private static final int VERSION = 3;
+
+    // the sides of a doublechest: none, +x, -x, +z, -z
+    private static final int[] PARTNER_X = {0, 1, -1, 0, 0};
+    private static final int[] PARTNER_Z = {0, 0, 0, 1, -1};
+
+    // compact, once there is more garbage than loot
+    private static final int MIN_GARBAGE = 64 * 1024;
+
+    private final File file;
+    private final LinkedHashMap<Long, Record> records = new LinkedHashMap<Long, Record>();
+    private long fileSize = 0;
+    private long liveBytes = 0;
+
+    // an existing file is only written, after it was read
+    private volatile boolean loaded = false;
+
+    public LootArchive(File file) {
+        this.file = file;
+    }
+
+    public boolean exists() {
+        return this.file.exists();
+    }
+
+    /**
+     * Read the archive. The index is read first, the appended records
+     * afterwards, so later saves replace older ones. An unreadable archive is
+     * moved aside, so it is never overwritten, and a new one is started.
+     *
+     * @return all lootspots of the archive
+     * @throws IOException
+     *             if the archive is unreadable
+     */
+    public Collection<Record> load() throws IOException {
+        this.loaded = false;
+        try {
+            this.read();
+        } catch (IOException e) {
+            throw this.moveAside(e);
+        } catch (RuntimeException e) {
+            throw this.moveAside(e);
+        }
+        this.loaded = true;
+        return this.records.values();
+    }
+
+    /**
+     * Move an unreadable archive out of the way
+     *
+     * @return the exception to throw
+     */
+    private IOException moveAside(Exception cause) {
+        this.records.clear();
+        this.fileSize = 0;
+        this.liveBytes = 0;
+
+        File brokenFile = new File(this.file.getPath() + ".broken-" + System.currentTimeMillis());
+        if (!this.file.renameTo(brokenFile)) {
+            // the file stays untouched, saves are refused
+            return new IOException("'" + this.file.getName() + "' is unreadable and could not be moved aside!", cause);
+        }
+        this.loaded = true;
+        return new IOException("'" + this.file.getName() + "' is unreadable, it was moved to '" + brokenFile.getName() + "'!", cause);
+    }
+
+    private void read() throws IOException {
+        this.records.clear();
+        this.fileSize = 0;
+        this.liveBytes = 0;
+        if (!this.file.exists()) {
+            return;
+        }
+
+        FileInputStream stream = new FileInputStream(this.file);
+        try {
+            // read into the heap instead of mapping the file: a mapping lives
+            // until it is collected and blocks compact() from replacing the file
+            byte[] data = new byte[(int) this.file.length()];
+            new DataInputStream(stream).readFully(data);
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            if (buffer.limit() < 12 || buffer.getInt() != MAGIC) {
+                throw new IOException("'" + this.file.getName() + "' is no lootarchive!");
+            }
+            int version = buffer.getInt();
+            if (version < 1 || version > VERSION) {
+                throw new IOException("'" + this.file.getName() + "' has the unknown version " + version + "!");
+            }
+            int tailOffset = buffer.getInt();
+
+            // read the compacted records through the index
+            String[] worldNames = new String[buffer.getShort()];
+            for (int i = 0; i < worldNames.length; i++) {
+                worldNames[i] = readString(buffer);
+            }
+            int entries = buffer.getInt();
+            for (int i = 0; i < entries; i++) {
+                buffer.getLong();
+                int offset = buffer.getInt();
+                this.put(readRecord(buffer, offset, version));
+            }
+
+            // read the appended records, a torn one at the end is dropped
+            int offset = tailOffset;
+            while (offset + 4 <= buffer.limit()) {
+                int length = buffer.getInt(offset);
+                if (length <= 0 || offset + 4 + length > buffer.limit()) {
+                    break;
+                }
+                this.put(readRecord(buffer, offset, version));
+                offset += 4 + length;
+            }
+
+            // old archives are rewritten before anything is appended
+            this.fileSize = (version == VERSION) ? offset : 0;
+        } finally {
+            stream.close();
+        }
+    }
+
+    private void put(Record record) {
+        Record old = this.records.put(record.getKey(), record);
+        if (old != null) {
+            this.liveBytes -= old.getSize();
+        }
+        this.liveBytes += record.getSize();
+    }
+
+    /**
+     * Save the items of a lootspot. Compacts the archive, if it is mostly
+     * garbage afterwards.
+     *
+     * @param location
+     * @param partner
+     *            the other half of a doublechest, may be <code>null</code>
+     * @param typeID
+     * @param subID
+     * @param poolName
+     *            the name of the lootpool, may be <code>null</code>
+     * @param items
+     * @throws IOException
+     */
+    public void save(Location location, Location partner, int typeID, byte subID, String poolName, ItemStack[] items) throws IOException {
+        this.checkLoaded();
+
+        // a missing or unreadable archive starts with a fresh header
+        if (this.fileSize == 0) {
+            this.compact();
+        }
+
+        Record record = new Record(location.getWorld().getName(), location.getBlockX(), location.getBlockY(), location.getBlockZ(), typeID, subID, getPartner(location, partner), poolName, InventoryHandler.encodeItems(items));
+        RandomAccessFile output = new RandomAccessFile(this.file, "rw");
+        try {
+            output.seek(this.fileSize);
+            output.write(record.data);
+            this.fileSize += record.getSize();
+            output.setLength(this.fileSize);
+        } finally {
+            output.close();
+        }
+        this.put(record);
+
+        long garbage = this.fileSize - this.liveBytes;
+        if (garbage > MIN_GARBAGE && garbage > this.liveBytes) {
+            this.compact();
+        }
+    }
+
+    /**
+     * Add records without writing them, used to migrate old lootspots
+     *
+     * @param record
+     */
+    public void add(Record record) {
+        this.put(record);
+    }
+
+    /**
+     * Remove a lootspot without writing it. The record stays in the file
+     * until the next {@link #compact()}.
+     *
+     * @param location
+     * @return <b>true</b> if there was a record
+     */
+    public boolean remove(Location location) {
+        Record old = this.records.remove(BlockKeys.blockKey(location));
+        if (old == null) {
+            return false;
+        }
+        this.liveBytes -= old.getSize();
+        return true;
+    }
+
+    private static byte getPartner(Location location, Location partner) {
+        if (partner == null) {
+            return 0;
+        }
+        int dx = partner.getBlockX() - location.getBlockX();
+        int dz = partner.getBlockZ() - location.getBlockZ();
+        for (byte side = 1; side < PARTNER_X.length; side++) {
+            if (PARTNER_X[side] == dx && PARTNER_Z[side] == dz) {
+                return side;
+            }
+        }
+        throw new IllegalArgumentException("The partner is not next to the lootspot!");
+    }
+
+    /**
+     * Rewrite the archive with a fresh index and only the current records
+     *
+     * @throws IOException
+     */
+    public void compact() throws IOException {
+        this.checkLoaded();
+
+        // the worlds of the index
+        HashMap<String, Integer> worldIDs = new HashMap<String, Integer>();
+        List<String> worldNames = new ArrayList<String>();
+        for (Record record : this.records.values()) {
+            if (!worldIDs.containsKey(record.worldName)) {
+                worldIDs.put(record.worldName, worldNames.size());
+                worldNames.add(record.worldName);
+            }
+        }
+
+        int headerSize = 4 + 4 + 4 + 2 + 4 + this.records.size() * 12;
+        for (String worldName : worldNames) {
+            headerSize += 2 + worldName.getBytes("UTF-8").length;
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream((int) (headerSize + this.liveBytes));
+        DataOutputStream output = new DataOutputStream(bytes);
+        output.writeInt(MAGIC);
+        output.writeInt(VERSION);
+        output.writeInt(headerSize + (int) this.liveBytes);
+        output.writeShort(worldNames.size());
+        for (String worldName : worldNames) {
+            writeString(output, worldName);
+        }
+        output.writeInt(this.records.size());
+        int offset = headerSize;
+        for (Record record : this.records.values()) {
+            output.writeLong(BlockKeys.blockKey(worldIDs.get(record.worldName), record.x, record.y, record.z));
+            output.writeInt(offset);
+            offset += record.getSize();
+        }
+        for (Record record : this.records.values()) {
+            output.write(record.data);
+        }
+        output.close();
+
+        // write a new file and replace the old one
+        File tempFile = new File(this.file.getPath() + ".tmp");
+        FileOutputStream stream = new FileOutputStream(tempFile);
+        try {
+            bytes.writeTo(stream);
+        } finally {
+            stream.close();
+        }
+        if (!tempFile.renameTo(this.file)) {
+            this.file.delete();
+            if (!tempFile.renameTo(this.file)) {
+                throw new IOException("Could not replace '" + this.file.getName() + "'!");
+            }
+        }
+        this.fileSize = offset;
+    }
+
+    /**
+     * Refuse to write an archive, that exists but was not read: it would lose
+     * every lootspot, that is not in memory.
+     */
+    private void checkLoaded() throws IOException {
+        if (!this.loaded && this.file.exists()) {
+            throw new IOException("'" + this.file.getName() + "' is not loaded, it is not written!");
+        }
+    }
+
+    /**
+     * Read an old lootfile (one per lootspot) as a record
+     *
+     * @param file
+     *            the file, named world_x_y_z_yaw_pitch_typeID_subID.dat
+     * @return the record
+     * @throws IOException
+     */
+    public static Record readLegacyFile(File file) throws IOException {
+        String split[] = file.getName().trim().replace(".dat", "").split("_");
+        if (split.length < 8) {
+            throw new IOException("'" + file.getName() + "' is no lootfile!");
+        }
+        try {
+            int x = (int) Math.floor(Double.valueOf(split[1]));
+            int y = (int) Math.floor(Double.valueOf(split[2]));
+            int z = (int) Math.floor(Double.valueOf(split[3]));
+            int typeID = Integer.valueOf(split[6]);
+            byte subID = Byte.valueOf(split[7]);
+            return new Record(split[0], x, y, z, typeID, subID, (byte) 0, null, InventoryHandler.encodeItems(InventoryHandler.loadInventory(file)));
+        } catch (NumberFormatException e) {
+            throw new IOException("'" + file.getName() + "' is no lootfile!");
+        }
+    }
+
+    private static Record readRecord(ByteBuffer buffer, int offset, int version) throws IOException {
+        int length = buffer.getInt(offset);
+        byte[] data = new byte[4 + length];
+        ByteBuffer view = buffer.duplicate();
+        view.position(offset);
+        view.get(data);
+
+        Record record = new Record(data, version);
+        if (version < VERSION) {
+            // convert the record to the current version
+            record = new Record(record.worldName, record.x, record.y, record.z, record.typeID, record.subID, record.partner, record.poolName, record.getItemData());
+        }
+        return record;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort()];
+        buffer.get(bytes);
+        try {
+            return new String(bytes, "UTF-8");
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void writeString(DataOutputStream output, String text) throws IOException {
+        byte[] bytes = text.getBytes("UTF-8");
+        output.writeShort(bytes.length);
+        output.write(bytes);
+    }
+
+    /**
+     * One lootspot of the archive
+     */
+    public static class Record {
+        private final byte[] data;
+        private final String worldName;
+        private final int x, y, z;
+        private final int typeID;
+        private final byte subID;
+        private final byte partner;
+        private final String poolName;
+        private final int itemOffset, itemLength;
+
+        public Record(String worldName, int x, int y, int z, int typeID, byte subID, byte partner, String poolName, byte[] items) throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream output = new DataOutputStream(bytes);
+            output.writeInt(0);
+            writeString(output, worldName);
+            output.writeInt(x);
+            output.writeInt(y);
+            output.writeInt(z);
+            output.writeInt(typeID);
+            output.writeByte(subID);
+            output.writeByte(partner);
+            writeString(output, (poolName != null) ? poolName : "");
+            output.writeInt(items.length);
+            output.write(items);
+            output.close();
+
+            this.data = bytes.toByteArray();
+            ByteBuffer.wrap(this.data).putInt(0, this.data.length - 4);
+            this.worldName = worldName;
+            this.x = x;
+            this.y = y;
+            this.z = z;
+            this.typeID = typeID;
+            this.subID = subID;
+            this.partner = partner;
+            this.poolName = poolName;
+            this.itemLength = items.length;
+            this.itemOffset = this.data.length - items.length;
+        }
+
+        private Record(byte[] data, int version) {
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            buffer.getInt();
+            this.data = data;
+            this.worldName = readString(buffer);
+            this.x = buffer.getInt();
+            this.y = buffer.getInt();
+            this.z = buffer.getInt();
+            this.typeID = buffer.getInt();
+            this.subID = buffer.get();
+            this.partner = (version >= 3) ? buffer.get() : 0;
+            if (version >= 2) {
+                String name = readString(buffer);
+                this.poolName = (name.length() > 0) ? name : null;
+            } else {
+                this.poolName = null;
+            }
+            this.itemLength = buffer.getInt();
+            this.itemOffset = buffer.position();
+        }
+
+        public Long getKey() {
+            return BlockKeys.blockKey(BlockKeys.getWorldID(this.worldName), this.x, this.y, this.z);
+        }
+
+        /**
+         * @return the location, or <code>null</code> if the world is not
+         *         loaded
+         */
+        public Location getLocation() {
+            World world = Bukkit.getWorld(this.worldName);
+            if (world == null) {
+                return null;
+            }
+            return new Location(world, this.x, this.y, this.z);
+        }
+
+        /**
+         * @return the location of the other half of a doublechest, or
+         *         <code>null</code> if there is none or the world is not
+         *         loaded
+         */
+        public Location getPartnerLocation() {
+            Location location = this.getLocation();
+            if (location == null || !this.hasPartner()) {
+                return null;
+            }
+            return location.add(PARTNER_X[this.partner], 0, PARTNER_Z[this.partner]);
+        }
+
+        public boolean hasPartner() {
+            return this.partner > 0 && this.partner < PARTNER_X.length;
+        }
+
+        public ItemStack[] getItems() throws IOException {
+            return InventoryHandler.decodeItems(this.data, this.itemOffset, this.itemLength);
+        }
+
+        private byte[] getItemData() {
+            byte[] items = new byte[this.itemLength];
+            System.arraycopy(this.data, this.itemOffset, items, 0, this.itemLength);
+            return items;
+        }
+
+        /**
+         * @return the name of the lootpool, or <code>null</code> if there is
+         *         none
+         */
+        public String getPoolName() {
+            return poolName;
+        }
+
+        public int getTypeID() {
+            return typeID;
+        }
+
+        public byte getSubID() {
+            return subID;
+        }
+
+        public int getSize() {
+            return data.length;
+        }
+
+        @Override
+        public String toString() {
+            return this.worldName + " , " + this.x + " , " + this.y + " , " + this.z;
+        }
+    }
+}
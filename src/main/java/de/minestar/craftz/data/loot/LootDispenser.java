@@ -1,126 +1,26 @@
 package de.minestar.craftz.data.loot;
 
-import java.io.File;
 import java.util.ArrayList;
 
 import org.bukkit.Location;
 import org.bukkit.Material;
-import org.bukkit.block.Dispenser;
-import org.bukkit.craftbukkit.v1_4_6.inventory.CraftInventory;
-import org.bukkit.inventory.Inventory;
-import org.bukkit.inventory.ItemStack;
 
 import de.minestar.craftz.data.Loot;
+import de.minestar.craftz.utils.AliasTable;
+import de.minestar.craftz.utils.SplitRandom;
 
 public class LootDispenser extends AbstractLootspot {
 
-    public LootDispenser(File dataFolder, Location location, ArrayList<Loot> lootList, byte subID) {
-        super(dataFolder, location, lootList, Material.DISPENSER.getId(), subID, 9);
-    }
-
-    public Dispenser getDispenser() {
-        if (!location.getBlock().getType().equals(Material.DISPENSER)) {
-            location.getBlock().setType(Material.DISPENSER);
-        }
-        return (Dispenser) (location.getBlock().getState());
-    }
-
-    @Override
-    public void showLoot() {
-        Dispenser dispenser = this.getDispenser();
-        if (dispenser == null) {
-            return;
-        }
-
-        this.clearLootspot();
-        int index = 0;
-        for (Loot loot : this.lootList) {
-            dispenser.getInventory().setItem(index, loot.getItemStack());
-            index++;
-        }
-    }
-
-    @Override
-    public void clearLootspot() {
-        Dispenser dispenser = this.getDispenser();
-        if (dispenser == null) {
-            return;
-        }
-        for (int itemIndex = 0; itemIndex < dispenser.getInventory().getSize(); itemIndex++) {
-            dispenser.getInventory().setItem(itemIndex, null);
-        }
-    }
-
-    @Override
-    protected void fillWithRandomItems() {
-        Dispenser dispenser = this.getDispenser();
-        if (dispenser == null) {
-            return;
-        }
-
-        int itemAmount = 0;
-        double randomNumber = this.random.nextDouble();
-        if (randomNumber < 0.25d) {
-            itemAmount = 1;
-        } else if (randomNumber < 0.52d) {
-            itemAmount = 2;
-        } else if (randomNumber < 0.78d) {
-            itemAmount = 3;
-        } else if (randomNumber < 0.87d) {
-            itemAmount = 4;
-        } else if (randomNumber <= 0.93d) {
-            itemAmount = 5;
-        } else if (randomNumber <= 0.98d) {
-            itemAmount = 6;
-        } else {
-            itemAmount = 2;
-        }
-
-        int done = 0;
-        int count = 0;
-        while (done < itemAmount && done < this.lootList.size() && count < 20) {
-            count++;
-            Loot loot = this.lootList.get((int) (this.random.nextDouble() * this.lootList.size()));
-            if (loot.isUsed()) {
-                continue;
-            }
-            loot.setUsed(true);
-            int itemSlot = (int) (this.random.nextDouble() * INVENTORY_SIZE);
-            if (dispenser.getInventory().getItem(itemSlot) == null || dispenser.getInventory().getItem(itemSlot).getType().equals(Material.AIR)) {
-                dispenser.getInventory().setItem(itemSlot, loot.getItemStack());
-                done++;
-            }
-        }
-        for (Loot loot : this.lootList) {
-            loot.setUsed(false);
-        }
-    }
-
-    @Override
-    public void updateLootContentsFromInventory() {
-        Dispenser dispenser = this.getDispenser();
-        if (dispenser == null) {
-            return;
-        }
+    // the chances for 1 to 6 items
+    public static final AliasTable AMOUNT_TABLE = new AliasTable(new double[]{0.25d, 0.29d, 0.26d, 0.09d, 0.06d, 0.05d});
 
-        this.lootList.clear();
-        ItemStack[] contents = dispenser.getInventory().getContents();
-        for (ItemStack stack : contents) {
-            if (stack == null || stack.getType().equals(Material.AIR)) {
-                continue;
-            }
-            this.lootList.add(new Loot(stack));
-        }
+    public LootDispenser(LootArchive archive, LootPools pools, Location location, ArrayList<Loot> lootList, byte subID, SplitRandom random) {
+        super(archive, pools, location, lootList, Material.DISPENSER.getId(), subID, 9, random);
     }
 
     @Override
-    protected CraftInventory getCraftInventory() {
-        Dispenser dispenser = this.getDispenser();
-        if (dispenser == null) {
-            return null;
-        }
-        Inventory inventory = dispenser.getInventory();
-        return (CraftInventory) inventory;
+    protected AliasTable getAmountTable() {
+        return AMOUNT_TABLE;
     }
 
 }
@@ -0,0 +1,76 @@
+package de.minestar.craftz.data.loot;
+
+import java.util.ArrayList;
+
+import net.minecraft.server.v1_4_6.IInventory;
+import net.minecraft.server.v1_4_6.InventoryLargeChest;
+import net.minecraft.server.v1_4_6.TileEntity;
+
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.craftbukkit.v1_4_6.inventory.CraftInventory;
+
+import de.minestar.craftz.data.Loot;
+import de.minestar.craftz.utils.AliasTable;
+import de.minestar.craftz.utils.SplitRandom;
+
+/**
+ * Both halves of a doublechest as one lootspot. The location is the half with
+ * the lower coordinates, it holds the first 27 slots like ingame.
+ */
+public class LootDoubleChest extends AbstractLootspot {
+
+    private final Location partner;
+
+    // the container is cached, as long as both tileentities stay the same
+    private TileEntity firstTileEntity = null;
+    private TileEntity secondTileEntity = null;
+    private CraftInventory inventory = null;
+
+    public LootDoubleChest(LootArchive archive, LootPools pools, Location location, Location partner, ArrayList<Loot> lootList, byte subID, SplitRandom random) {
+        super(archive, pools, location, lootList, Material.CHEST.getId(), subID, 54, random);
+        this.partner = partner;
+    }
+
+    @Override
+    protected AliasTable getAmountTable() {
+        return LootChest.AMOUNT_TABLE;
+    }
+
+    /**
+     * As much loot as two single chests
+     */
+    @Override
+    protected int sampleAmount() {
+        return LootChest.AMOUNT_TABLE.sample(this.random) + LootChest.AMOUNT_TABLE.sample(this.random) + 2;
+    }
+
+    @Override
+    protected CraftInventory getCraftInventory() {
+        TileEntity first = getTileEntity(this.location);
+        TileEntity second = getTileEntity(this.partner);
+        if (this.inventory != null && first == this.firstTileEntity && second == this.secondTileEntity) {
+            return this.inventory;
+        }
+
+        // one of the blocks has changed
+        this.firstTileEntity = null;
+        this.secondTileEntity = null;
+        this.inventory = null;
+        first = this.recreateBlock(this.location, first);
+        second = this.recreateBlock(this.partner, second);
+        if (!(first instanceof IInventory) || !(second instanceof IInventory)) {
+            return null;
+        }
+
+        this.firstTileEntity = first;
+        this.secondTileEntity = second;
+        this.inventory = new CraftInventory(new InventoryLargeChest("Large chest", (IInventory) first, (IInventory) second));
+        return this.inventory;
+    }
+
+    @Override
+    public Location getPartnerLocation() {
+        return partner;
+    }
+}
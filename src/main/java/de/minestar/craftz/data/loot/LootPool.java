@@ -0,0 +1,43 @@
+package de.minestar.craftz.data.loot;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import de.minestar.craftz.data.Loot;
+
+/**
+ * A named list of loot, which is shared by many lootspots. It is compiled
+ * into one {@link LootTable}, which all of them sample from.
+ */
+public class LootPool {
+
+    private final String name;
+    private ArrayList<Loot> loot;
+    private LootTable lootTable = null;
+
+    public LootPool(String name, List<Loot> loot) {
+        this.name = name;
+        this.setLoot(loot);
+    }
+
+    public void setLoot(List<Loot> loot) {
+        this.loot = new ArrayList<Loot>(loot);
+        this.lootTable = null;
+    }
+
+    public LootTable getLootTable() {
+        if (this.lootTable == null) {
+            this.lootTable = new LootTable(this.loot);
+        }
+        return this.lootTable;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<Loot> getLoot() {
+        return Collections.unmodifiableList(loot);
+    }
+}
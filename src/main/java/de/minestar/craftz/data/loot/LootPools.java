@@ -0,0 +1,148 @@
+package de.minestar.craftz.data.loot;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+
+import net.minecraft.server.v1_4_6.ItemStack;
+import net.minecraft.server.v1_4_6.NBTTagCompound;
+import net.minecraft.server.v1_4_6.NBTTagList;
+
+import org.bukkit.ChatColor;
+import org.bukkit.craftbukkit.v1_4_6.inventory.CraftItemStack;
+
+import de.minestar.craftz.data.Loot;
+import de.minestar.craftz.utils.Chat;
+import de.minestar.craftz.utils.CompressedStreamTools;
+
+/**
+ * The lootpools of an arena, or the global ones. The pools of an arena hide
+ * global pools with the same name.
+ */
+public class LootPools {
+
+    public static final String FILE_NAME = "pools.dat";
+
+    private final File file;
+    private final LootPools parent;
+    private final HashMap<String, LootPool> pools = new HashMap<String, LootPool>();
+
+    /**
+     * @param file
+     * @param parent
+     *            the pools to fall back to, may be <code>null</code>
+     */
+    public LootPools(File file, LootPools parent) {
+        this.file = file;
+        this.parent = parent;
+        this.load();
+    }
+
+    /**
+     * @param name
+     * @return the pool, or <code>null</code> if there is none
+     */
+    public LootPool getPool(String name) {
+        LootPool pool = this.pools.get(name.toLowerCase());
+        if (pool == null && this.parent != null) {
+            return this.parent.getPool(name);
+        }
+        return pool;
+    }
+
+    /**
+     * Create or replace a pool
+     *
+     * @param name
+     * @param loot
+     * @return the pool
+     */
+    public LootPool setPool(String name, List<Loot> loot) {
+        LootPool pool = this.pools.get(name.toLowerCase());
+        if (pool == null) {
+            pool = new LootPool(name, loot);
+            this.pools.put(name.toLowerCase(), pool);
+        } else {
+            pool.setLoot(loot);
+        }
+        this.save();
+        return pool;
+    }
+
+    public boolean removePool(String name) {
+        if (this.pools.remove(name.toLowerCase()) == null) {
+            return false;
+        }
+        this.save();
+        return true;
+    }
+
+    /**
+     * @return the own pools, without the ones of the parent
+     */
+    public Collection<LootPool> getPools() {
+        return this.pools.values();
+    }
+
+    public LootPools getParent() {
+        return parent;
+    }
+
+    private void load() {
+        if (!this.file.exists()) {
+            return;
+        }
+
+        try {
+            NBTTagCompound compound = CompressedStreamTools.loadGzippedCompoundFromOutputStream(new FileInputStream(this.file));
+            NBTTagList poolList = compound.getList("Pools");
+            for (int i = 0; i < poolList.size(); i++) {
+                NBTTagCompound poolCompound = (NBTTagCompound) poolList.get(i);
+                NBTTagList itemList = poolCompound.getList("Items");
+                ArrayList<Loot> loot = new ArrayList<Loot>();
+                for (int j = 0; j < itemList.size(); j++) {
+                    ItemStack stack = ItemStack.a((NBTTagCompound) itemList.get(j));
+                    if (stack != null) {
+                        loot.add(Loot.of(CraftItemStack.asCraftMirror(stack)));
+                    }
+                }
+
+                String name = poolCompound.getString("Name");
+                this.pools.put(name.toLowerCase(), new LootPool(name, loot));
+            }
+        } catch (Exception e) {
+            Chat.printMessage(ChatColor.RED, "Unable to load lootpools from '" + this.file + "'!");
+            e.printStackTrace();
+        }
+    }
+
+    public void save() {
+        try {
+            NBTTagList poolList = new NBTTagList();
+            for (LootPool pool : this.pools.values()) {
+                NBTTagList itemList = new NBTTagList();
+                for (Loot loot : pool.getLoot()) {
+                    itemList.add(loot.createHandle().save(new NBTTagCompound()));
+                }
+
+                NBTTagCompound poolCompound = new NBTTagCompound();
+                poolCompound.setString("Name", pool.getName());
+                poolCompound.set("Items", itemList);
+                poolList.add(poolCompound);
+            }
+
+            NBTTagCompound compound = new NBTTagCompound();
+            compound.set("Pools", poolList);
+            BufferedOutputStream stream = new BufferedOutputStream(new FileOutputStream(this.file));
+            CompressedStreamTools.writeGzippedCompoundToOutputStream(compound, stream);
+            stream.close();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package de.minestar.craftz.data.loot;
+
+import java.util.List;
+
+import de.minestar.craftz.data.Loot;
+import de.minestar.craftz.utils.SplitRandom;
+
+/**
+ * The compiled loot of one lootspot. Every saved itemstack is an entry of its
+ * own, even if it equals another one: an item that was saved three times can
+ * be drawn up to three times for one chest.
+ */
+public class LootTable {
+
+    private final Loot[] loot;
+
+    // a permutation of the indices, the front is shuffled by every sample
+    private final int[] order;
+
+    public LootTable(List<Loot> lootList) {
+        // one entry per copy, so drawing without replacement works per copy
+        this.loot = lootList.toArray(new Loot[lootList.size()]);
+        this.order = new int[this.loot.length];
+        for (int i = 0; i < this.order.length; i++) {
+            this.order[i] = i;
+        }
+    }
+
+    /**
+     * Draw distinct loot without replacement. Every entry has the same chance,
+     * so this is a partial Fisher-Yates shuffle of the indices: O(amount), no
+     * matter how large the table is.
+     *
+     * @param random
+     * @param amount
+     *            the wanted number of items
+     * @param result
+     *            the array for the drawn loot
+     * @return the number of drawn items, which is less than the amount only if
+     *         the table is too small
+     */
+    public int sample(SplitRandom random, int amount, Loot[] result) {
+        amount = Math.min(amount, Math.min(this.loot.length, result.length));
+
+        // any permutation is a fine start, so the order is never reset
+        for (int done = 0; done < amount; done++) {
+            int swap = done + random.nextInt(this.order.length - done);
+            int index = this.order[swap];
+            this.order[swap] = this.order[done];
+            this.order[done] = index;
+            result[done] = this.loot[index];
+        }
+        return Math.max(0, amount);
+    }
+
+    public int size() {
+        return loot.length;
+    }
+}
@@ -65,9 +65,6 @@ public class AdminListener implements Listener {
             if (lootSpot != null) {
                 lootSpot.respawnLoot();
                 event.getPlayer().sendMessage(ChatColor.GREEN + "Lootspot refilled!");
-                if (isChest) {
-                    event.getPlayer().sendMessage(ChatColor.GRAY + "NOTE: Every chest of a doublechest needs to be refilled!");
-                }
                 // cancel the event
                 event.setCancelled(true);
                 return;
@@ -78,6 +75,12 @@ public class AdminListener implements Listener {
             // cancel the event
             event.setCancelled(true);
             if (event.getAction().equals(Action.RIGHT_CLICK_BLOCK)) {
+                // the archive is only complete, once all lootspots are loaded
+                if (!sPlayer.getCurrentGame().getLootManager().isLoaded()) {
+                    event.getPlayer().sendMessage(ChatColor.RED + "Lootspots are still loading!");
+                    return;
+                }
+
                 // save/update the chest
                 AbstractLootspot lootSpot = sPlayer.getCurrentGame().getLootManager().getLootspot(block.getLocation());
                 if (lootSpot != null) {
@@ -85,9 +88,6 @@ public class AdminListener implements Listener {
                     lootSpot.updateLootContentsFromInventory();
                     lootSpot.saveLoot();
                     event.getPlayer().sendMessage(ChatColor.GREEN + "Lootspot updated!");
-                    if (isChest) {
-                        event.getPlayer().sendMessage(ChatColor.GRAY + "NOTE: Every chest of a doublechest needs to be updated!");
-                    }
                     return;
                 } else {
                     // CREATE LOOTSPOT
@@ -97,9 +97,6 @@ public class AdminListener implements Listener {
                         lootSpot.updateLootContentsFromInventory();
                         lootSpot.saveLoot();
                         event.getPlayer().sendMessage(ChatColor.GREEN + "Lootspot created!");
-                        if (isChest) {
-                            event.getPlayer().sendMessage(ChatColor.GRAY + "NOTE: Every chest of a doublechest needs to be saved!");
-                        }
                     } else {
                         event.getPlayer().sendMessage(ChatColor.RED + "Error creating lootspot!");
                     }
@@ -111,9 +108,6 @@ public class AdminListener implements Listener {
                 if (lootSpot != null) {
                     lootSpot.showLoot();
                     event.getPlayer().sendMessage(ChatColor.GREEN + "Lootspot is now showing ALL lootcontents!");
-                    if (isChest) {
-                        event.getPlayer().sendMessage(ChatColor.GRAY + "NOTE: Every chest of a doublechest needs to be restored manually!");
-                    }
                 }
             }
         }
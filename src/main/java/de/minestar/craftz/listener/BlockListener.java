@@ -2,6 +2,7 @@ package de.minestar.craftz.listener;
 
 import org.bukkit.Material;
 import org.bukkit.block.Block;
+import org.bukkit.block.BlockState;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
 import org.bukkit.event.block.BlockBreakEvent;
@@ -60,7 +61,9 @@ public class BlockListener implements Listener {
         // validate blockplace
         Block block = event.getBlockPlaced();
         if (sPlayer.getCurrentGame().getSettings().isPlaceable(block.getType()) && sPlayer.isPlayer()) {
-            sPlayer.getCurrentGame().addBlockUpdate(event.getBlock().getLocation());
+            // the block is already placed, so remember the replaced one
+            BlockState replaced = event.getBlockReplacedState();
+            sPlayer.getCurrentGame().addBlockUpdate(event.getBlock(), replaced.getTypeId(), replaced.getRawData());
             return;
         }
 
@@ -79,7 +82,7 @@ public class BlockListener implements Listener {
         // validate blockbreak
         Block block = event.getBlock();
         if (sPlayer.getCurrentGame().getSettings().isBreakable(block.getType()) && sPlayer.isPlayer()) {
-            sPlayer.getCurrentGame().addBlockUpdate(event.getBlock().getLocation());
+            sPlayer.getCurrentGame().addBlockUpdate(block);
             return;
         }
 
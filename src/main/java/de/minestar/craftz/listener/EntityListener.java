@@ -1,14 +1,19 @@
 package de.minestar.craftz.listener;
 
+import org.bukkit.Location;
 import org.bukkit.entity.Entity;
 import org.bukkit.entity.EntityType;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
+import org.bukkit.event.entity.CreatureSpawnEvent;
 import org.bukkit.event.entity.EntityTargetEvent;
 import org.bukkit.event.entity.EntityTargetLivingEntityEvent;
+import org.bukkit.event.entity.ItemSpawnEvent;
+import org.bukkit.event.entity.ProjectileLaunchEvent;
 
 import de.minestar.craftz.Core;
+import de.minestar.craftz.data.SurvivalGame;
 import de.minestar.craftz.data.SurvivalPlayer;
 import de.minestar.craftz.manager.GameManager;
 
@@ -48,4 +53,36 @@ public class EntityListener implements Listener {
             return;
         }
     }
+
+    // /////////////////////////////////////////////////////////
+    //
+    // Entities in the arena
+    //
+    // /////////////////////////////////////////////////////////
+
+    private void trackEntity(Entity entity) {
+        Location location = entity.getLocation();
+        for (SurvivalGame game : this.gameManager.getGames()) {
+            if (!game.isGameInLobby() && game.getSettings().isInArena(location)) {
+                game.addEntityUpdate(entity);
+                return;
+            }
+        }
+    }
+
+    @EventHandler(ignoreCancelled = true)
+    public void onItemSpawn(ItemSpawnEvent event) {
+        // drops of blocks, deaths and leaving players
+        this.trackEntity(event.getEntity());
+    }
+
+    @EventHandler(ignoreCancelled = true)
+    public void onCreatureSpawn(CreatureSpawnEvent event) {
+        this.trackEntity(event.getEntity());
+    }
+
+    @EventHandler(ignoreCancelled = true)
+    public void onProjectileLaunch(ProjectileLaunchEvent event) {
+        this.trackEntity(event.getEntity());
+    }
 }
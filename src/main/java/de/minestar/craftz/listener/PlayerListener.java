@@ -3,8 +3,11 @@ package de.minestar.craftz.listener;
 import java.util.Iterator;
 
 import org.bukkit.ChatColor;
+import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.block.Block;
+import org.bukkit.block.BlockState;
+import org.bukkit.block.DoubleChest;
 import org.bukkit.craftbukkit.v1_4_6.CraftWorld;
 import org.bukkit.craftbukkit.v1_4_6.entity.CraftEntity;
 import org.bukkit.entity.Arrow;
@@ -19,6 +22,8 @@ import org.bukkit.event.entity.EntityDamageByEntityEvent;
 import org.bukkit.event.entity.EntityDamageEvent.DamageCause;
 import org.bukkit.event.entity.FoodLevelChangeEvent;
 import org.bukkit.event.entity.PlayerDeathEvent;
+import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.event.inventory.InventoryOpenEvent;
 import org.bukkit.event.player.AsyncPlayerChatEvent;
 import org.bukkit.event.player.PlayerCommandPreprocessEvent;
 import org.bukkit.event.player.PlayerDropItemEvent;
@@ -28,12 +33,14 @@ import org.bukkit.event.player.PlayerKickEvent;
 import org.bukkit.event.player.PlayerMoveEvent;
 import org.bukkit.event.player.PlayerPickupItemEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.inventory.InventoryHolder;
 import org.bukkit.inventory.ItemStack;
 
 import de.minestar.craftz.Core;
 import de.minestar.craftz.data.SurvivalGame;
 import de.minestar.craftz.data.SurvivalPlayer;
 import de.minestar.craftz.manager.GameManager;
+import de.minestar.craftz.manager.LootManager;
 import de.minestar.craftz.utils.LocationUtils;
 
 public class PlayerListener implements Listener {
@@ -155,7 +162,7 @@ public class PlayerListener implements Listener {
             event.setCancelled(true);
             return;
         } else {
-            sPlayer.getCurrentGame().addBlockUpdate(event.getClickedBlock().getLocation());
+            sPlayer.getCurrentGame().addBlockUpdate(block);
         }
     }
 
@@ -360,7 +367,56 @@ public class PlayerListener implements Listener {
         }
 
         // add itemdrop
-        sPlayer.getCurrentGame().addItemUpdate(event.getItemDrop());
+        sPlayer.getCurrentGame().addEntityUpdate(event.getItemDrop());
+    }
+
+    @EventHandler(ignoreCancelled = true)
+    public void onInventoryOpen(InventoryOpenEvent event) {
+        // get the player
+        SurvivalPlayer sPlayer = this.gameManager.getPlayer(event.getPlayer().getName());
+        if (sPlayer == null) {
+            return;
+        }
+
+        Location location = this.getLootLocation(event.getInventory().getHolder());
+        if (location == null) {
+            return;
+        }
+
+        // refill stale lootspots, before the inventory is shown
+        LootManager lootManager = sPlayer.getCurrentGame().getLootManager();
+        lootManager.refreshLootspot(location);
+        lootManager.markDirty(location);
+    }
+
+    @EventHandler(ignoreCancelled = true)
+    public void onInventoryClick(InventoryClickEvent event) {
+        // get the player
+        SurvivalPlayer sPlayer = this.gameManager.getPlayer(event.getWhoClicked().getName());
+        if (sPlayer == null) {
+            return;
+        }
+
+        // the inventory may have been open during a refill
+        Location location = this.getLootLocation(event.getInventory().getHolder());
+        if (location != null) {
+            sPlayer.getCurrentGame().getLootManager().markDirty(location);
+        }
+    }
+
+    /**
+     * @return the location of the container, or <code>null</code> if it is
+     *         no block
+     */
+    private Location getLootLocation(InventoryHolder holder) {
+        // both halves of a doublechest belong to the same lootspot
+        if (holder instanceof DoubleChest) {
+            holder = ((DoubleChest) holder).getLeftSide();
+        }
+        if (holder instanceof BlockState) {
+            return ((BlockState) holder).getLocation();
+        }
+        return null;
     }
 
     private void playThunderSound(Entity entity) {
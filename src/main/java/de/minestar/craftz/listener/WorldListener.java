@@ -0,0 +1,52 @@
+package de.minestar.craftz.listener;
+
+import org.bukkit.Chunk;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.world.ChunkLoadEvent;
+import org.bukkit.event.world.ChunkUnloadEvent;
+
+import de.minestar.craftz.Core;
+import de.minestar.craftz.data.SurvivalGame;
+import de.minestar.craftz.manager.GameManager;
+
+public class WorldListener implements Listener {
+
+    private GameManager gameManager;
+
+    public WorldListener() {
+        this.gameManager = Core.gameManager;
+    }
+
+    @EventHandler
+    public void onChunkLoad(ChunkLoadEvent event) {
+        // the snapshots need to know every chunk, even if it is unloaded again
+        final Chunk chunk = event.getChunk();
+        for (SurvivalGame game : this.gameManager.getGames()) {
+            game.getSnapshotManager().onChunkLoad(chunk);
+            game.getRollbackManager().onChunkLoad(chunk);
+        }
+
+        // the blocks are changed after the event, in the next tick
+        Core.tickScheduler.getMailbox().post(new Runnable() {
+            @Override
+            public void run() {
+                if (!chunk.isLoaded()) {
+                    return;
+                }
+                for (SurvivalGame game : gameManager.getGames()) {
+                    game.onChunkLoad(chunk);
+                }
+            }
+        });
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onChunkUnload(ChunkUnloadEvent event) {
+        // the entities of the chunk get new ids, once it is loaded again
+        for (SurvivalGame game : this.gameManager.getGames()) {
+            game.getRollbackManager().onChunkUnload(event.getChunk());
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package de.minestar.craftz.manager;
+
+import java.util.ArrayList;
+
+import de.minestar.craftz.threads.Countdown;
+import de.minestar.craftz.threads.GameTask;
+
+/**
+ * Updates the countdowns of all games in one pass per tick.
+ */
+public class CountdownManager extends GameTask {
+
+    private final TickScheduler tickScheduler;
+    private final ArrayList<Countdown> countdowns = new ArrayList<Countdown>();
+    // the scheduler of the game per countdown
+    private final ArrayList<Scheduler> owners = new ArrayList<Scheduler>();
+
+    public CountdownManager(TickScheduler tickScheduler) {
+        this.tickScheduler = tickScheduler;
+    }
+
+    public void onEnable() {
+        // once per servertick, a lagging server must not run the budget several times
+        this.tickScheduler.scheduleEveryServerTick(this);
+    }
+
+    public void onDisable() {
+        this.cancel();
+        this.countdowns.clear();
+        this.owners.clear();
+    }
+
+    /**
+     * Start a countdown. The scheduler of the game is told, once the countdown
+     * is over.
+     */
+    public void startCountdown(Scheduler owner, Countdown countdown) {
+        countdown.start(this.tickScheduler);
+        this.countdowns.add(countdown);
+        this.owners.add(owner);
+    }
+
+    @Override
+    public void run() {
+        int index = 0;
+        while (index < this.countdowns.size()) {
+            Countdown countdown = this.countdowns.get(index);
+            if (!countdown.isCancelled()) {
+                countdown.run();
+            }
+
+            // remove finished countdowns by swapping in the last one
+            if (countdown.isCancelled()) {
+                Scheduler owner = this.owners.get(index);
+                int last = this.countdowns.size() - 1;
+                this.countdowns.set(index, this.countdowns.get(last));
+                this.countdowns.remove(last);
+                this.owners.set(index, this.owners.get(last));
+                this.owners.remove(last);
+                owner.onTaskDone(countdown);
+            } else {
+                index++;
+            }
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package de.minestar.craftz.manager;
+
+import java.lang.ref.WeakReference;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Player;
+
+import de.minestar.craftz.threads.WorkBatch;
+import de.minestar.craftz.utils.BlockKeys;
+import de.minestar.craftz.utils.LongHashMap;
+
+/**
+ * The items, arrows and mobs, that came into the arena during a match. The
+ * entities are keyed by their id and only weakly referenced, so entities the
+ * world removed on its own are not kept alive until the reset.
+ * <p>
+ * The reset removes them with one pass over the entities of every chunk they
+ * were spawned in or are in now.
+ * <p>
+ * Entities get a new id, when their chunk is loaded again. So the tracker
+ * remembers the types of the tracked entities of an unloaded chunk. If the
+ * chunk is loaded during the match, its entities of these types are tracked
+ * again. If it is still unloaded at the reset, it is loaded and they are
+ * removed by type.
+ */
+public class EntityTracker {
+
+    private LongHashMap<WeakReference<Entity>> entities = new LongHashMap<WeakReference<Entity>>(256);
+
+    // the chunks the entities were spawned in
+    private LongHashMap<Boolean> chunks = new LongHashMap<Boolean>(64);
+
+    // the types of the tracked entities per unloaded chunk, see getTypeBit()
+    private LongHashMap<Long> unloadedChunks = new LongHashMap<Long>(16);
+
+    private int removedEntities = 0;
+
+    public void track(Entity entity) {
+        if (entity instanceof Player || this.entities.containsKey(entity.getEntityId())) {
+            return;
+        }
+        this.entities.put(entity.getEntityId(), new WeakReference<Entity>(entity));
+        this.chunks.put(BlockKeys.chunkKey(entity.getLocation()), Boolean.TRUE);
+    }
+
+    /**
+     * The tracked entities of the chunk lose their ids, remember their types
+     */
+    public void onChunkUnload(Chunk chunk) {
+        if (this.entities.isEmpty()) {
+            return;
+        }
+
+        long types = 0;
+        for (Entity entity : chunk.getEntities()) {
+            if (this.entities.remove(entity.getEntityId()) != null) {
+                types |= getTypeBit(entity);
+            }
+        }
+        if (types != 0) {
+            long chunkKey = BlockKeys.chunkKey(chunk);
+            Long oldTypes = this.unloadedChunks.get(chunkKey);
+            this.unloadedChunks.put(chunkKey, (oldTypes != null) ? (oldTypes | types) : types);
+        }
+    }
+
+    /**
+     * Track the entities of a chunk again, that had tracked entities when it
+     * was unloaded
+     */
+    public void onChunkLoad(Chunk chunk) {
+        if (this.unloadedChunks.isEmpty()) {
+            return;
+        }
+
+        Long types = this.unloadedChunks.remove(BlockKeys.chunkKey(chunk));
+        if (types == null) {
+            return;
+        }
+        for (Entity entity : chunk.getEntities()) {
+            if ((types & getTypeBit(entity)) != 0) {
+                this.track(entity);
+            }
+        }
+    }
+
+    private static long getTypeBit(Entity entity) {
+        return 1L << (entity.getType().ordinal() & 63);
+    }
+
+    /**
+     * Add one job per chunk to the batch, that removes the tracked entities of
+     * the chunk. Entities spawned meanwhile are kept for the next reset.
+     */
+    public void addRemoveJobs(WorkBatch batch) {
+        final LongHashMap<WeakReference<Entity>> tracked = this.entities;
+        LongHashMap<Boolean> chunks = this.chunks;
+        final LongHashMap<Long> unloadedChunks = this.unloadedChunks;
+
+        // items are thrown and mobs walk, so look where they are now
+        for (long id : tracked.keys()) {
+            Entity entity = tracked.get(id).get();
+            if (entity != null && entity.isValid()) {
+                chunks.put(BlockKeys.chunkKey(entity.getLocation()), Boolean.TRUE);
+            }
+        }
+
+        for (final long chunkKey : chunks.keys()) {
+            batch.addJob(new Runnable() {
+                @Override
+                public void run() {
+                    removeEntities(tracked, chunkKey);
+                }
+            });
+        }
+
+        for (final long chunkKey : unloadedChunks.keys()) {
+            batch.addJob(new Runnable() {
+                @Override
+                public void run() {
+                    removeUnloadedEntities(chunkKey, unloadedChunks.get(chunkKey));
+                }
+            });
+        }
+
+        // the jobs read the old maps
+        this.entities = new LongHashMap<WeakReference<Entity>>(Math.max(256, tracked.size()));
+        this.chunks = new LongHashMap<Boolean>(Math.max(64, chunks.size()));
+        this.unloadedChunks = new LongHashMap<Long>(Math.max(16, unloadedChunks.size()));
+    }
+
+    private void removeEntities(LongHashMap<WeakReference<Entity>> tracked, long chunkKey) {
+        World world = Bukkit.getWorld(BlockKeys.getWorldName(BlockKeys.getWorldID(chunkKey)));
+        int chunkX = BlockKeys.getChunkX(chunkKey);
+        int chunkZ = BlockKeys.getChunkZ(chunkKey);
+
+        // the tracked entities of a chunk, that unloaded, are in unloadedChunks
+        if (world == null || !world.isChunkLoaded(chunkX, chunkZ)) {
+            return;
+        }
+
+        for (Entity entity : world.getChunkAt(chunkX, chunkZ).getEntities()) {
+            if (tracked.containsKey(entity.getEntityId()) && !entity.isDead()) {
+                entity.remove();
+                this.removedEntities++;
+            }
+        }
+    }
+
+    /**
+     * Load the chunk and remove the entities of the types, that were tracked
+     * when it was unloaded
+     */
+    private void removeUnloadedEntities(long chunkKey, long types) {
+        World world = Bukkit.getWorld(BlockKeys.getWorldName(BlockKeys.getWorldID(chunkKey)));
+        if (world == null) {
+            return;
+        }
+
+        int chunkX = BlockKeys.getChunkX(chunkKey);
+        int chunkZ = BlockKeys.getChunkZ(chunkKey);
+        boolean loaded = world.isChunkLoaded(chunkX, chunkZ);
+        for (Entity entity : world.getChunkAt(chunkX, chunkZ).getEntities()) {
+            if (!(entity instanceof Player) && (types & getTypeBit(entity)) != 0 && !entity.isDead()) {
+                entity.remove();
+                this.removedEntities++;
+            }
+        }
+
+        // leave the chunk as it was, it is saved without the entities
+        if (!loaded) {
+            world.unloadChunkRequest(chunkX, chunkZ, true);
+        }
+    }
+
+    public int getRemovedEntities() {
+        return removedEntities;
+    }
+
+    public void resetRemovedEntities() {
+        this.removedEntities = 0;
+    }
+
+    public int size() {
+        return this.entities.size();
+    }
+}
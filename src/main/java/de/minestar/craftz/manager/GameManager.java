@@ -1,7 +1,11 @@
 package de.minestar.craftz.manager;
 
 import java.io.File;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import org.bukkit.ChatColor;
 import org.bukkit.entity.Player;
@@ -9,11 +13,14 @@ import org.bukkit.entity.Player;
 import de.minestar.craftz.Core;
 import de.minestar.craftz.data.SurvivalGame;
 import de.minestar.craftz.data.SurvivalPlayer;
+import de.minestar.craftz.data.loot.LootPools;
 
 public class GameManager {
 
     private HashMap<String, SurvivalGame> gameList;
     private HashMap<String, SurvivalPlayer> playerList;
+    private ThreadPoolExecutor loaderPool;
+    private LootPools globalPools;
 
     public GameManager() {
         this.gameList = new HashMap<String, SurvivalGame>();
@@ -21,6 +28,12 @@ public class GameManager {
     }
 
     public void onEnable() {
+        // the threads of the pool stop, once there is nothing left to load
+        int threads = Core.settings.getLoaderThreads();
+        this.loaderPool = new ThreadPoolExecutor(threads, threads, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
+        this.loaderPool.allowCoreThreadTimeOut(true);
+
+        this.globalPools = new LootPools(new File(Core.INSTANCE.getDataFolder(), LootPools.FILE_NAME), null);
         this.initGames();
     }
 
@@ -35,6 +48,7 @@ public class GameManager {
     }
 
     public void onDisable() {
+        this.loaderPool.shutdownNow();
         for (SurvivalGame game : this.gameList.values()) {
             game.closeGame();
         }
@@ -47,6 +61,24 @@ public class GameManager {
     //
     // /////////////////////////////////////////////////////////
 
+    /**
+     * @return the lootpools of all arenas
+     */
+    public LootPools getGlobalPools() {
+        return globalPools;
+    }
+
+    /**
+     * @return the pool for the background work of the games
+     */
+    public ThreadPoolExecutor getLoaderPool() {
+        return loaderPool;
+    }
+
+    public Collection<SurvivalGame> getGames() {
+        return this.gameList.values();
+    }
+
     public SurvivalGame getMainGame() {
         return (SurvivalGame) this.gameList.values().toArray()[0];
     }
@@ -62,7 +94,16 @@ public class GameManager {
             return false;
         }
 
+        // the lootspots are still loading
         SurvivalGame game = this.getGame(gameName);
+        if (!game.getLootManager().isLoaded()) {
+            return false;
+        }
+
+        // the arena of the last match is not reset yet
+        if (game.isResetting()) {
+            return false;
+        }
         game.goToPreGame();
         return true;
     }
@@ -74,6 +115,7 @@ public class GameManager {
 
         SurvivalGame game = new SurvivalGame(gameName);
         this.gameList.put(gameName.toLowerCase(), game);
+        game.getLootManager().loadLootspots(this.loaderPool, Core.tickScheduler.getMailbox());
         return true;
     }
 
@@ -1,156 +1,809 @@
 package de.minestar.craftz.manager;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
 
 import net.minecraft.server.v1_4_6.ItemStack;
 
 import org.bukkit.ChatColor;
+import org.bukkit.Chunk;
 import org.bukkit.Location;
 import org.bukkit.Material;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockFace;
 import org.bukkit.craftbukkit.v1_4_6.inventory.CraftItemStack;
 
 import de.minestar.craftz.Core;
 import de.minestar.craftz.data.Loot;
 import de.minestar.craftz.data.SurvivalPlayer;
 import de.minestar.craftz.data.loot.AbstractLootspot;
+import de.minestar.craftz.data.loot.LootArchive;
 import de.minestar.craftz.data.loot.LootChest;
 import de.minestar.craftz.data.loot.LootDispenser;
+import de.minestar.craftz.data.loot.LootDoubleChest;
+import de.minestar.craftz.data.loot.LootPools;
+import de.minestar.craftz.threads.WorkBatch;
+import de.minestar.craftz.utils.BlockKeys;
 import de.minestar.craftz.utils.Chat;
-import de.minestar.craftz.utils.InventoryHandler;
-import de.minestar.craftz.utils.LocationUtils;
+import de.minestar.craftz.utils.LongHashMap;
+import de.minestar.craftz.utils.SplitRandom;
 
 public class LootManager {
 
+    private static final int LOAD_BATCH_SIZE = 64;
+    private static final List<AbstractLootspot> EMPTY = Collections.emptyList();
+    private static final BlockFace[] SIDES = {BlockFace.NORTH, BlockFace.EAST, BlockFace.SOUTH, BlockFace.WEST};
+
     private ArrayList<AbstractLootspot> lootspots;
+    private LongHashMap<AbstractLootspot> lootspotsByBlock;
+    private LongHashMap<ArrayList<AbstractLootspot>> lootspotsByChunk;
     private File dataFolder;
+    private LootArchive archive;
+    private LootPools pools;
+    private final SplitRandom random;
+    private int generation = 0;
+    private boolean fullRefill = false;
+    private boolean cleared = false;
+    private int refilledCount = 0;
+    private int skippedCount = 0;
+    private int deferredCount = 0;
+
+    private boolean loaded = false;
+    private int pendingBatches = 0;
+    private int lootItemCount = 0;
+    private Executor pool;
+    private Mailbox mailbox;
+
+    // lootspots in loaded chunks, whose blocks are checked after loading
+    private ArrayList<AbstractLootspot> loadedLootspots = new ArrayList<AbstractLootspot>();
+
+    // doublechests, that were merged from two lootspots and need to be saved
+    private ArrayList<AbstractLootspot> mergedLootspots = new ArrayList<AbstractLootspot>();
 
-    public LootManager(String gameName) {
+    // lootspots in unloaded chunks, whose blocks are not checked yet
+    private LongHashMap<ArrayList<AbstractLootspot>> uncheckedLootspots = new LongHashMap<ArrayList<AbstractLootspot>>();
+
+    public LootManager(String gameName, SplitRandom random) {
+        this.random = random;
         this.dataFolder = new File(Core.INSTANCE.getDataFolder() + System.getProperty("file.separator") + gameName);
         this.dataFolder.mkdir();
 
         this.dataFolder = new File(this.dataFolder + System.getProperty("file.separator") + "loot");
         this.dataFolder.mkdir();
+        this.archive = new LootArchive(new File(this.dataFolder, LootArchive.FILE_NAME));
+        this.pools = new LootPools(new File(this.dataFolder, LootPools.FILE_NAME), Core.gameManager.getGlobalPools());
 
         this.lootspots = new ArrayList<AbstractLootspot>();
-        this.loadLootspots();
+        this.lootspotsByBlock = new LongHashMap<AbstractLootspot>();
+        this.lootspotsByChunk = new LongHashMap<ArrayList<AbstractLootspot>>();
     }
 
-    private void loadLootspots() {
-        File[] files = this.dataFolder.listFiles();
-        int lootItemCount = 0;
-        for (File file : files) {
-            String fileName = file.getName().trim();
-            String cleanFileName = fileName.replace(".dat", "").replace("_", " , ");
-            try {
-                if (fileName.endsWith(".dat")) {
-                    // get the location
-                    Location location = LocationUtils.fromString(fileName.replace(".dat", ""));
-                    if (location == null) {
-                        Chat.printMessage(ChatColor.RED, "Unable to load lootspot @ " + cleanFileName);
-                        continue;
+    /**
+     * Load the lootspots in the background. The archive is read and decoded
+     * by the pool, the lootspots are registered by the mainthread, through
+     * the mailbox. Afterwards the blocks are checked by a LootValidator.
+     *
+     * @param pool
+     * @param mailbox
+     */
+    public void loadLootspots(final Executor pool, final Mailbox mailbox) {
+        this.pool = pool;
+        this.mailbox = mailbox;
+        pool.execute(new Runnable() {
+            @Override
+            public void run() {
+                List<LootArchive.Record> records = readArchive();
+
+                // split the records into batches for the pool
+                final int batches = (records.size() + LOAD_BATCH_SIZE - 1) / LOAD_BATCH_SIZE;
+                mailbox.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        startLoading(batches);
                     }
+                });
+                for (int start = 0; start < records.size(); start += LOAD_BATCH_SIZE) {
+                    final List<LootArchive.Record> batch = records.subList(start, Math.min(start + LOAD_BATCH_SIZE, records.size()));
+                    pool.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            final List<ArrayList<Loot>> lootLists = decodeLoot(batch);
+                            mailbox.post(new Runnable() {
+                                @Override
+                                public void run() {
+                                    registerLootspots(batch, lootLists);
+                                }
+                            });
+                        }
+                    });
+                }
+            }
+        });
+    }
 
-                    // get the material
-                    String split[] = fileName.replace(".dat", "").split("_");
-                    int typeID = Integer.valueOf(split[6]);
-                    byte subID = Byte.valueOf(split[7]);
+    /**
+     * Read the archive, runs in the pool
+     */
+    private List<LootArchive.Record> readArchive() {
+        try {
+            // convert the old lootfiles once
+            if (!this.archive.exists()) {
+                this.migrateLootFiles();
+            }
+            return new ArrayList<LootArchive.Record>(this.archive.load());
+        } catch (Exception e) {
+            Chat.printMessage(ChatColor.RED, "Unable to load the lootarchive!");
+            e.printStackTrace();
+            return new ArrayList<LootArchive.Record>();
+        }
+    }
 
-                    // is the lootspot valid?
-                    if (location.getBlock().getTypeId() != typeID || location.getBlock().getData() != subID) {
-                        location.getBlock().setTypeIdAndData(typeID, subID, false);
-                        location.getBlock().setData(subID, false);
-                        Chat.printMessage(ChatColor.RED, "Recreating lootspot @ " + cleanFileName);
+    /**
+     * Decode the loot of the records, runs in the pool
+     */
+    private List<ArrayList<Loot>> decodeLoot(List<LootArchive.Record> records) {
+        List<ArrayList<Loot>> lootLists = new ArrayList<ArrayList<Loot>>(records.size());
+        for (LootArchive.Record record : records) {
+            ArrayList<Loot> lootList = null;
+            try {
+                lootList = new ArrayList<Loot>();
+                for (ItemStack stack : record.getItems()) {
+                    if (stack != null) {
+                        lootList.add(Loot.of(CraftItemStack.asCraftMirror(stack)));
                     }
+                }
+            } catch (Exception e) {
+                Chat.printMessage(ChatColor.RED, "Unable to load lootspot @ " + record);
+                e.printStackTrace();
+                lootList = null;
+            }
+            lootLists.add(lootList);
+        }
+        return lootLists;
+    }
 
-                    // load loot
-                    ArrayList<Loot> lootList = new ArrayList<Loot>();
-                    ItemStack[] itemList = InventoryHandler.loadInventory(file);
-                    for (ItemStack stack : itemList) {
-                        if (stack != null) {
-                            lootList.add(new Loot(CraftItemStack.asCraftMirror(stack)));
-                            lootItemCount++;
-                        }
-                    }
+    private void startLoading(int batches) {
+        this.pendingBatches = batches;
+        if (batches == 0) {
+            this.finishLoading();
+        }
+    }
 
-                    // add to lootlist
-                    AbstractLootspot lootSpot = this.addLootSpot(location);
-                    if (lootSpot != null) {
-                        this.lootspots.add(lootSpot);
-                    } else {
-                        Chat.printMessage(ChatColor.RED, "Unable to load lootspot @ " + cleanFileName);
-                    }
+    /**
+     * Add the lootspots, runs on the mainthread. The blocks are only checked
+     * in loaded chunks, the others are checked once their chunk is loaded.
+     * Nothing is checked here, that is done after loading.
+     */
+    private void registerLootspots(List<LootArchive.Record> records, List<ArrayList<Loot>> lootLists) {
+        for (int i = 0; i < records.size(); i++) {
+            LootArchive.Record record = records.get(i);
+            ArrayList<Loot> lootList = lootLists.get(i);
+            if (lootList == null) {
+                continue;
+            }
+
+            try {
+                // get the location
+                Location location = record.getLocation();
+                if (location == null) {
+                    Chat.printMessage(ChatColor.RED, "Unable to load lootspot @ " + record);
+                    continue;
+                }
+
+                // the other half of a doublechest was saved as a lootspot of its own
+                AbstractLootspot lootSpot = this.getLootspot(location);
+                if (lootSpot != null) {
+                    lootSpot.addLoot(lootList);
+                    this.lootItemCount += lootList.size();
+                    this.archive.remove(location);
+                    this.addMergedLootspot(lootSpot);
+                    continue;
+                }
+
+                // add to lootlist
+                lootSpot = this.createLootspot(location, record.getPartnerLocation(), record.getTypeID(), record.getSubID(), lootList);
+                if (lootSpot == null) {
+                    Chat.printMessage(ChatColor.RED, "Unable to load lootspot @ " + record);
+                    continue;
+                }
+                this.lootItemCount += lootList.size();
+                lootSpot.setPoolName(record.getPoolName());
+                this.register(lootSpot);
+
+                if (this.isChunkLoaded(lootSpot)) {
+                    this.loadedLootspots.add(lootSpot);
+                } else {
+                    this.addUncheckedLootspot(lootSpot);
                 }
             } catch (Exception e) {
-                Chat.printMessage(ChatColor.RED, "Unable to load lootspot @ " + cleanFileName);
+                Chat.printMessage(ChatColor.RED, "Unable to load lootspot @ " + record);
                 e.printStackTrace();
             }
         }
-        Chat.printMessage(ChatColor.GREEN, "Loaded " + this.lootspots.size() + " lootspots with " + lootItemCount + " items!");
+
+        if (--this.pendingBatches == 0) {
+            this.finishLoading();
+        }
+    }
+
+    /**
+     * Create a lootspot from its saved data, without touching the world
+     */
+    private AbstractLootspot createLootspot(Location location, Location partner, int typeID, byte subID, ArrayList<Loot> lootList) {
+        switch (typeID) {
+            case 54 : { // CHEST
+                if (partner != null) {
+                    return new LootDoubleChest(this.archive, this.pools, location, partner, lootList, subID, this.random);
+                }
+                return new LootChest(this.archive, this.pools, location, lootList, subID, this.random);
+            }
+            case 23 : { // DISPENSER
+                return new LootDispenser(this.archive, this.pools, location, lootList, subID, this.random);
+            }
+            default : {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Merge a single chest, that is a half of a doublechest, into a
+     * doublechest. Its chunk must be loaded.
+     *
+     * @param lootSpot
+     * @return <b>true</b> if the chest was merged
+     */
+    boolean mergeDoubleChest(AbstractLootspot lootSpot) {
+        Location partner = this.getPartnerChest(lootSpot.getLocation());
+        AbstractLootspot other = (partner != null) ? this.getLootspot(partner) : null;
+        if (partner == null || (other != null && other.getPartnerLocation() != null)) {
+            return false;
+        }
+
+        this.unregister(lootSpot);
+        this.archive.remove(lootSpot.getLocation());
+        AbstractLootspot doubleChest = this.addChest(lootSpot.getLocation(), lootSpot.getLoot());
+        if (doubleChest.getPoolName() == null) {
+            doubleChest.setPoolName(lootSpot.getPoolName());
+        }
+        this.addMergedLootspot(doubleChest);
+        return true;
+    }
+
+    /**
+     * Called by the LootValidator, when it is done
+     */
+    void onValidationDone() {
+        if (this.loaded && !this.mergedLootspots.isEmpty()) {
+            this.saveMergedLootspots();
+        }
+    }
+
+    private void validate(List<AbstractLootspot> lootSpots, boolean startup) {
+        LootValidator validator = new LootValidator(this, new File(this.dataFolder, LootValidator.REPORT_NAME), startup);
+        validator.start(lootSpots, this.pool, this.mailbox);
+    }
+
+    /**
+     * Remember a lootspot, whose blocks are checked once its chunks are
+     * loaded
+     */
+    void addUncheckedLootspot(AbstractLootspot lootSpot) {
+        Location location = lootSpot.getLocation();
+        if (this.isChunkLoaded(location)) {
+            location = lootSpot.getPartnerLocation();
+        }
+
+        long chunkKey = BlockKeys.chunkKey(location);
+        ArrayList<AbstractLootspot> chunkList = this.uncheckedLootspots.get(chunkKey);
+        if (chunkList == null) {
+            chunkList = new ArrayList<AbstractLootspot>(4);
+            this.uncheckedLootspots.put(chunkKey, chunkList);
+        }
+        chunkList.add(lootSpot);
+    }
+
+    private void addMergedLootspot(AbstractLootspot lootSpot) {
+        if (!this.mergedLootspots.contains(lootSpot)) {
+            this.mergedLootspots.add(lootSpot);
+        }
+    }
+
+    /**
+     * Apply everything, that waited for the chunk: the blocks of the
+     * lootspots are checked in the background and they are cleared or
+     * refilled.
+     *
+     * @param chunk
+     * @param refresh
+     *            refill the stale lootspots of the chunk
+     */
+    public void onChunkLoad(Chunk chunk, boolean refresh) {
+        long chunkKey = BlockKeys.chunkKey(chunk);
+        ArrayList<AbstractLootspot> unchecked = this.uncheckedLootspots.remove(chunkKey);
+        if (unchecked != null) {
+            ArrayList<AbstractLootspot> checks = new ArrayList<AbstractLootspot>(unchecked.size());
+            for (AbstractLootspot lootSpot : unchecked) {
+                // it may be merged into a doublechest meanwhile
+                if (this.getLootspot(lootSpot.getLocation()) != lootSpot) {
+                    continue;
+                }
+                if (this.isChunkLoaded(lootSpot)) {
+                    checks.add(lootSpot);
+                } else {
+                    this.addUncheckedLootspot(lootSpot);
+                }
+            }
+            if (!checks.isEmpty()) {
+                this.validate(checks, false);
+            }
+        }
+
+        ArrayList<AbstractLootspot> chunkList = this.lootspotsByChunk.get(chunkKey);
+        if (chunkList == null) {
+            return;
+        }
+        for (AbstractLootspot lootSpot : chunkList) {
+            if (this.cleared) {
+                this.clear(lootSpot);
+            } else if (refresh) {
+                this.refresh(lootSpot);
+            }
+        }
+    }
+
+    private boolean isChunkLoaded(Location location) {
+        return location.getWorld().isChunkLoaded(location.getBlockX() >> 4, location.getBlockZ() >> 4);
+    }
+
+    /**
+     * @return <b>true</b> if the chunks of both halves are loaded
+     */
+    private boolean isChunkLoaded(AbstractLootspot lootSpot) {
+        if (!this.isChunkLoaded(lootSpot.getLocation())) {
+            return false;
+        }
+        return lootSpot.getPartnerLocation() == null || this.isChunkLoaded(lootSpot.getPartnerLocation());
+    }
+
+    private void finishLoading() {
+        this.loaded = true;
+        Chat.printMessage(ChatColor.GREEN, "Loaded " + this.lootspots.size() + " lootspots with " + this.lootItemCount + " items (" + Loot.getTemplateCount() + " different items in all games)!");
+        if (!this.mergedLootspots.isEmpty()) {
+            Chat.printMessage(ChatColor.GREEN, "Merged " + this.mergedLootspots.size() + " doublechests!");
+            this.saveMergedLootspots();
+        }
+
+        // check the blocks of the lootspots in loaded chunks
+        this.validate(this.loadedLootspots, true);
+        this.loadedLootspots = new ArrayList<AbstractLootspot>();
+    }
+
+    /**
+     * Save the merged doublechests and drop the records of the old halves
+     */
+    private void saveMergedLootspots() {
+        for (AbstractLootspot lootSpot : this.mergedLootspots) {
+            lootSpot.saveLoot();
+        }
+        this.mergedLootspots.clear();
+
+        try {
+            this.archive.compact();
+        } catch (IOException e) {
+            Chat.printMessage(ChatColor.RED, "Unable to write the lootarchive!");
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * @return the lootpools of this arena
+     */
+    public LootPools getPools() {
+        return pools;
+    }
+
+    /**
+     * @return <b>true</b> if all lootspots are loaded
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Move the lootspots from the old files (one per lootspot) into the
+     * archive. The old files are moved to the folder 'legacy'.
+     */
+    private void migrateLootFiles() {
+        File legacyFolder = new File(this.dataFolder, "legacy");
+        ArrayList<File> migratedFiles = new ArrayList<File>();
+        for (File file : this.dataFolder.listFiles()) {
+            String fileName = file.getName().trim();
+            if (!fileName.endsWith(".dat")) {
+                continue;
+            }
+
+            String cleanFileName = fileName.replace(".dat", "").replace("_", " , ");
+            try {
+                this.archive.add(LootArchive.readLegacyFile(file));
+                migratedFiles.add(file);
+            } catch (Exception e) {
+                Chat.printMessage(ChatColor.RED, "Unable to migrate lootspot @ " + cleanFileName);
+                e.printStackTrace();
+            }
+        }
+
+        if (migratedFiles.isEmpty()) {
+            return;
+        }
+
+        try {
+            this.archive.compact();
+        } catch (IOException e) {
+            Chat.printMessage(ChatColor.RED, "Unable to write the lootarchive!");
+            e.printStackTrace();
+            return;
+        }
+
+        legacyFolder.mkdir();
+        for (File file : migratedFiles) {
+            file.renameTo(new File(legacyFolder, file.getName()));
+        }
+        Chat.printMessage(ChatColor.GREEN, "Migrated " + migratedFiles.size() + " lootspots to the lootarchive!");
     }
 
     public AbstractLootspot addLootSpot(Location location) {
+        return this.addLootSpot(location, new ArrayList<Loot>());
+    }
+
+    public AbstractLootspot addLootSpot(Location location, ArrayList<Loot> lootList) {
         if (this.getLootspot(location) != null) {
             return null;
         }
 
+        AbstractLootspot lootSpot;
         final int typeID = location.getBlock().getTypeId();
         switch (typeID) {
             case 54 : { // CHEST
-                return this.addChest(location);
+                lootSpot = this.addChest(location, lootList);
+                break;
             }
             case 23 : { // DISPENSER
-                return this.addDispenser(location);
+                lootSpot = this.createLootspot(location, null, typeID, location.getBlock().getData(), lootList);
+                this.register(lootSpot);
+                break;
             }
             default : {
                 return null;
             }
         }
-    }
 
-    private AbstractLootspot addChest(Location location) {
-        AbstractLootspot lootSpot = new LootChest(this.dataFolder, location, new ArrayList<Loot>(), location.getBlock().getData());
-        this.lootspots.add(lootSpot);
+        if (!this.mergedLootspots.isEmpty()) {
+            this.saveMergedLootspots();
+        }
         return lootSpot;
     }
 
-    private AbstractLootspot addDispenser(Location location) {
-        AbstractLootspot lootSpot = new LootDispenser(this.dataFolder, location, new ArrayList<Loot>(), location.getBlock().getData());
-        this.lootspots.add(lootSpot);
+    private AbstractLootspot addChest(Location location, ArrayList<Loot> lootList) {
+        Location partner = this.getPartnerChest(location);
+        AbstractLootspot other = (partner != null) ? this.getLootspot(partner) : null;
+        if (partner == null || (other != null && other.getPartnerLocation() != null)) {
+            AbstractLootspot lootSpot = new LootChest(this.archive, this.pools, location, lootList, location.getBlock().getData(), this.random);
+            this.register(lootSpot);
+            return lootSpot;
+        }
+
+        // the half with the lower coordinates comes first, like ingame
+        Location first = location;
+        Location second = partner;
+        if (partner.getBlockX() < location.getBlockX() || partner.getBlockZ() < location.getBlockZ()) {
+            first = partner;
+            second = location;
+        }
+        AbstractLootspot lootSpot = new LootDoubleChest(this.archive, this.pools, first, second, lootList, first.getBlock().getData(), this.random);
+
+        // the other half was a single chest until now
+        if (other != null) {
+            lootSpot.addLoot(other.getLoot());
+            lootSpot.setPoolName(other.getPoolName());
+            this.unregister(other);
+            this.archive.remove(other.getLocation());
+            this.addMergedLootspot(lootSpot);
+        }
+        this.register(lootSpot);
         return lootSpot;
     }
 
-    public AbstractLootspot getLootspot(Location location) {
-        for (AbstractLootspot lootSpot : this.lootspots) {
-            if (LocationUtils.equals(lootSpot.getLocation(), location)) {
-                return lootSpot;
+    /**
+     * @return the location of the chest next to the given one, or
+     *         <code>null</code> if there is none. Unloaded chunks are not
+     *         checked.
+     */
+    private Location getPartnerChest(Location location) {
+        Block block = location.getBlock();
+        for (BlockFace face : SIDES) {
+            int x = location.getBlockX() + face.getModX();
+            int z = location.getBlockZ() + face.getModZ();
+            if (!location.getWorld().isChunkLoaded(x >> 4, z >> 4)) {
+                continue;
+            }
+            Block other = block.getRelative(face);
+            if (other.getType() == Material.CHEST) {
+                return other.getLocation();
             }
         }
         return null;
     }
 
+    private void register(AbstractLootspot lootSpot) {
+        this.lootspots.add(lootSpot);
+        this.lootspotsByBlock.put(BlockKeys.blockKey(lootSpot.getLocation()), lootSpot);
+        this.addToChunk(lootSpot, BlockKeys.chunkKey(lootSpot.getLocation()));
+        if (lootSpot.getPartnerLocation() != null) {
+            this.lootspotsByBlock.put(BlockKeys.blockKey(lootSpot.getPartnerLocation()), lootSpot);
+
+            // a doublechest may lie in two chunks
+            this.addToChunk(lootSpot, BlockKeys.chunkKey(lootSpot.getPartnerLocation()));
+        }
+    }
+
+    private void addToChunk(AbstractLootspot lootSpot, long chunkKey) {
+        ArrayList<AbstractLootspot> chunkList = this.lootspotsByChunk.get(chunkKey);
+        if (chunkList == null) {
+            chunkList = new ArrayList<AbstractLootspot>(4);
+            this.lootspotsByChunk.put(chunkKey, chunkList);
+        }
+        if (!chunkList.contains(lootSpot)) {
+            chunkList.add(lootSpot);
+        }
+    }
+
+    private void unregister(AbstractLootspot lootSpot) {
+        this.lootspots.remove(lootSpot);
+        this.lootspotsByBlock.remove(BlockKeys.blockKey(lootSpot.getLocation()));
+        this.removeFromChunk(lootSpot, BlockKeys.chunkKey(lootSpot.getLocation()));
+        if (lootSpot.getPartnerLocation() != null) {
+            this.lootspotsByBlock.remove(BlockKeys.blockKey(lootSpot.getPartnerLocation()));
+            this.removeFromChunk(lootSpot, BlockKeys.chunkKey(lootSpot.getPartnerLocation()));
+        }
+    }
+
+    private void removeFromChunk(AbstractLootspot lootSpot, long chunkKey) {
+        ArrayList<AbstractLootspot> chunkList = this.lootspotsByChunk.get(chunkKey);
+        if (chunkList != null) {
+            chunkList.remove(lootSpot);
+        }
+    }
+
+    public AbstractLootspot getLootspot(Location location) {
+        return this.lootspotsByBlock.get(BlockKeys.blockKey(location));
+    }
+
+    /**
+     * @return all lootspots inside of the given chunk
+     */
+    public List<AbstractLootspot> getLootspots(Chunk chunk) {
+        return this.getLootspots(chunk.getWorld().getName(), chunk.getX(), chunk.getZ());
+    }
+
+    public List<AbstractLootspot> getLootspots(String worldName, int chunkX, int chunkZ) {
+        ArrayList<AbstractLootspot> chunkList = this.lootspotsByChunk.get(BlockKeys.chunkKey(BlockKeys.getWorldID(worldName), chunkX, chunkZ));
+        if (chunkList == null) {
+            return EMPTY;
+        }
+        return Collections.unmodifiableList(chunkList);
+    }
+
     public void teleportToLootspot(int ID, SurvivalPlayer player) {
-        int c = 0;
-        for (AbstractLootspot lootSpot : this.lootspots) {
-            if (ID == c) {
-                player.teleport(lootSpot.getLocation());
-                player.broadcast(ChatColor.GREEN + "Teleport to lootspot #" + ID + " of " + this.lootspots.size());
-                return;
-            }
-            c++;
+        if (ID >= 0 && ID < this.lootspots.size()) {
+            player.teleport(this.lootspots.get(ID).getLocation());
+            player.broadcast(ChatColor.GREEN + "Teleport to lootspot #" + ID + " of " + this.lootspots.size());
+            return;
         }
         player.broadcast(ChatColor.GREEN + "Total lootspots: " + this.lootspots.size());
     }
 
-    public void refillLootspots() {
-        for (AbstractLootspot lootSpot : this.lootspots) {
-            lootSpot.respawnLoot();
+    /**
+     * Add a refill job for every used lootspot to the batch. The lootspots
+     * closest to one of the given locations are refilled first.
+     *
+     * @param batch
+     * @param locations
+     *            the locations of the players
+     * @param fullRefill
+     *            refill the unused lootspots as well
+     */
+    public void refillLootspots(WorkBatch batch, List<Location> locations, boolean fullRefill) {
+        this.startGeneration(fullRefill);
+
+        // sort by distance: the upper 32 bits hold the squared distance, the lower ones the index
+        long[] order = new long[this.lootspots.size()];
+        int count = 0;
+        for (int index = 0; index < this.lootspots.size(); index++) {
+            AbstractLootspot lootSpot = this.lootspots.get(index);
+            if (!fullRefill && !lootSpot.isDirty()) {
+                // nobody touched it since the last refill
+                this.refresh(lootSpot);
+                continue;
+            }
+            if (!this.isChunkLoaded(lootSpot)) {
+                // refilled once the chunk is loaded
+                this.deferredCount++;
+                continue;
+            }
+            long distance = this.getDistanceSquared(lootSpot.getLocation(), locations);
+            order[count++] = (distance << 32) | index;
+        }
+        Arrays.sort(order, 0, count);
+
+        for (int i = 0; i < count; i++) {
+            final AbstractLootspot lootSpot = this.lootspots.get((int) order[i]);
+            batch.addJob(new Runnable() {
+                @Override
+                public void run() {
+                    // lootspots opened since the start of the wave are already refilled
+                    refresh(lootSpot);
+                }
+            });
+        }
+    }
+
+    /**
+     * Start a new refillgeneration without touching any lootspot. Every used
+     * lootspot is refilled once it is opened or a player comes close.
+     *
+     * @param fullRefill
+     *            refill the unused lootspots as well
+     */
+    public void invalidateLootspots(boolean fullRefill) {
+        this.startGeneration(fullRefill);
+    }
+
+    private void startGeneration(boolean fullRefill) {
+        this.generation++;
+        this.fullRefill = fullRefill;
+        this.cleared = false;
+        this.refilledCount = 0;
+        this.skippedCount = 0;
+        this.deferredCount = 0;
+    }
+
+    private void refresh(AbstractLootspot lootSpot) {
+        if (lootSpot.getGeneration() == this.generation) {
+            return;
+        }
+
+        // an unused lootspot needs no world access, the others wait for their chunk
+        if ((lootSpot.isDirty() || this.fullRefill) && !this.isChunkLoaded(lootSpot)) {
+            return;
+        }
+        if (lootSpot.refresh(this.generation, this.fullRefill)) {
+            this.refilledCount++;
+        } else {
+            this.skippedCount++;
+        }
+    }
+
+    /**
+     * @return the number of lootspots refilled in the current
+     *         refillgeneration
+     */
+    public int getRefilledCount() {
+        return refilledCount;
+    }
+
+    /**
+     * @return the number of unused lootspots skipped in the current
+     *         refillgeneration
+     */
+    public int getSkippedCount() {
+        return skippedCount;
+    }
+
+    /**
+     * @return the number of lootspots, that waited for their chunk at the
+     *         start of the current refillgeneration
+     */
+    public int getDeferredCount() {
+        return deferredCount;
+    }
+
+    /**
+     * Refill the lootspot at the location, if it is stale
+     *
+     * @param location
+     */
+    public void refreshLootspot(Location location) {
+        AbstractLootspot lootSpot = this.getLootspot(location);
+        if (lootSpot != null) {
+            this.refresh(lootSpot);
+        }
+    }
+
+    /**
+     * Mark the lootspot at the location as used
+     *
+     * @param location
+     */
+    public void markDirty(Location location) {
+        AbstractLootspot lootSpot = this.getLootspot(location);
+        if (lootSpot != null) {
+            lootSpot.markDirty();
+        }
+    }
+
+    /**
+     * Refill all stale lootspots around the location
+     *
+     * @param location
+     * @param radius
+     */
+    public void refreshLootspots(Location location, int radius) {
+        int worldID = BlockKeys.getWorldID(location.getWorld());
+        long radiusSquared = (long) radius * radius;
+        int minChunkX = (location.getBlockX() - radius) >> 4;
+        int maxChunkX = (location.getBlockX() + radius) >> 4;
+        int minChunkZ = (location.getBlockZ() - radius) >> 4;
+        int maxChunkZ = (location.getBlockZ() + radius) >> 4;
+        for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++) {
+            for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; chunkZ++) {
+                ArrayList<AbstractLootspot> chunkList = this.lootspotsByChunk.get(BlockKeys.chunkKey(worldID, chunkX, chunkZ));
+                if (chunkList == null) {
+                    continue;
+                }
+                for (AbstractLootspot lootSpot : chunkList) {
+                    Location other = lootSpot.getLocation();
+                    long dx = other.getBlockX() - location.getBlockX();
+                    long dy = other.getBlockY() - location.getBlockY();
+                    long dz = other.getBlockZ() - location.getBlockZ();
+                    if (dx * dx + dy * dy + dz * dz <= radiusSquared) {
+                        this.refresh(lootSpot);
+                    }
+                }
+            }
+        }
+    }
+
+    private long getDistanceSquared(Location location, List<Location> locations) {
+        long minDistance = Integer.MAX_VALUE;
+        for (Location other : locations) {
+            if (other.getWorld() != location.getWorld()) {
+                continue;
+            }
+            long dx = other.getBlockX() - location.getBlockX();
+            long dy = other.getBlockY() - location.getBlockY();
+            long dz = other.getBlockZ() - location.getBlockZ();
+            minDistance = Math.min(minDistance, dx * dx + dy * dy + dz * dz);
+        }
+        return minDistance;
+    }
+
+    /**
+     * Clear all lootspots. Lootspots in unloaded chunks are cleared once
+     * their chunk is loaded.
+     */
+    public void clearAllLootSpots(WorkBatch batch) {
+        this.cleared = true;
+        for (final AbstractLootspot lootSpot : this.lootspots) {
+            batch.addJob(new Runnable() {
+                @Override
+                public void run() {
+                    clear(lootSpot);
+                }
+            });
         }
     }
 
-    public void clearAllLootSpots() {
-        for (AbstractLootspot lootSpot : this.lootspots) {
+    private void clear(AbstractLootspot lootSpot) {
+        if (this.isChunkLoaded(lootSpot)) {
             lootSpot.clearLootspot();
+        } else {
+            lootSpot.markDirty();
         }
     }
 }
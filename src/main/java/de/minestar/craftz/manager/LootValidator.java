@@ -0,0 +1,303 @@
+package de.minestar.craftz.manager;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import org.bukkit.ChatColor;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+
+import de.minestar.craftz.Core;
+import de.minestar.craftz.data.loot.AbstractLootspot;
+import de.minestar.craftz.data.loot.LootChest;
+import de.minestar.craftz.threads.WorkBatch;
+import de.minestar.craftz.utils.BlockKeys;
+import de.minestar.craftz.utils.Chat;
+import de.minestar.craftz.utils.PoolUtils;
+
+/**
+ * Checks the blocks of lootspots in two phases. First the chunks are copied
+ * into snapshots by a batch on the mainthread and scanned by the pool, without
+ * changing anything. Afterwards a second batch repairs the broken blocks. The
+ * result is written into one report, instead of a line per lootspot.
+ */
+public class LootValidator {
+
+    public static final String REPORT_NAME = "validation.txt";
+
+    private final LootManager lootManager;
+    private final File reportFile;
+    private final boolean startup;
+
+    private final LinkedHashMap<Long, ArrayList<Check>> checksByChunk = new LinkedHashMap<Long, ArrayList<Check>>();
+    private final ArrayList<Check> brokenChecks = new ArrayList<Check>();
+    private int pendingScans = 0;
+    private boolean scanBatchDone = false;
+
+    private int checkedLootspots = 0;
+    private int waitingLootspots = 0;
+    private int recreatedBlocks = 0;
+    private int fixedBlocks = 0;
+    private int mergedChests = 0;
+    private final ArrayList<String> reportLines = new ArrayList<String>();
+
+    /**
+     * @param lootManager
+     * @param reportFile
+     * @param startup
+     *            <b>true</b> for the check after loading the arena, it starts
+     *            a new report and always prints the summary
+     */
+    public LootValidator(LootManager lootManager, File reportFile, boolean startup) {
+        this.lootManager = lootManager;
+        this.reportFile = reportFile;
+        this.startup = startup;
+    }
+
+    /**
+     * Check the lootspots. Must be called on the mainthread.
+     *
+     * @param lootSpots
+     * @param pool
+     *            the pool to scan the snapshots
+     * @param mailbox
+     *            the mailbox to return the results
+     */
+    public void start(List<AbstractLootspot> lootSpots, final Executor pool, final Mailbox mailbox) {
+        // group the blocks by chunk, so every chunk is copied only once
+        for (AbstractLootspot lootSpot : lootSpots) {
+            this.checkedLootspots++;
+            this.addCheck(lootSpot, lootSpot.getLocation());
+            if (lootSpot.getPartnerLocation() != null) {
+                this.addCheck(lootSpot, lootSpot.getPartnerLocation());
+            }
+        }
+
+        // phase 1: copy the chunks and scan them in the pool
+        WorkBatch scanBatch = new WorkBatch(WorkBatch.PRIORITY_LOW);
+        scanBatch.setBudget(Core.settings.getRepairBudget());
+        for (final ArrayList<Check> checks : this.checksByChunk.values()) {
+            scanBatch.addJob(new Runnable() {
+                @Override
+                public void run() {
+                    Location location = checks.get(0).location;
+                    World world = location.getWorld();
+                    if (!world.isChunkLoaded(location.getBlockX() >> 4, location.getBlockZ() >> 4)) {
+                        waitForChunk(checks);
+                        return;
+                    }
+
+                    final ChunkSnapshot snapshot = world.getChunkAt(location.getBlockX() >> 4, location.getBlockZ() >> 4).getChunkSnapshot();
+                    pendingScans++;
+                    PoolUtils.execute(pool, new Runnable() {
+                        @Override
+                        public void run() {
+                            final List<Check> broken = scan(snapshot, checks);
+                            mailbox.post(new Runnable() {
+                                @Override
+                                public void run() {
+                                    onScanDone(broken);
+                                }
+                            });
+                        }
+                    });
+                }
+            });
+        }
+        scanBatch.setCallback(new Runnable() {
+            @Override
+            public void run() {
+                scanBatchDone = true;
+                if (pendingScans == 0) {
+                    repair();
+                }
+            }
+        });
+        Core.workExecutor.submit(scanBatch);
+    }
+
+    private void addCheck(AbstractLootspot lootSpot, Location location) {
+        Long chunkKey = BlockKeys.chunkKey(location);
+        ArrayList<Check> checks = this.checksByChunk.get(chunkKey);
+        if (checks == null) {
+            checks = new ArrayList<Check>();
+            this.checksByChunk.put(chunkKey, checks);
+        }
+        checks.add(new Check(lootSpot, location));
+    }
+
+    /**
+     * The chunk was unloaded meanwhile, its lootspots are checked once it is
+     * loaded again
+     */
+    private void waitForChunk(List<Check> checks) {
+        for (Check check : checks) {
+            if (check.location == check.lootSpot.getLocation()) {
+                this.waitingLootspots++;
+            }
+            this.lootManager.addUncheckedLootspot(check.lootSpot);
+        }
+    }
+
+    /**
+     * Compare the blocks with the snapshot, runs in the pool
+     */
+    private static List<Check> scan(ChunkSnapshot snapshot, List<Check> checks) {
+        List<Check> broken = new ArrayList<Check>();
+        for (Check check : checks) {
+            int x = check.location.getBlockX() & 15;
+            int y = check.location.getBlockY();
+            int z = check.location.getBlockZ() & 15;
+            check.foundTypeID = snapshot.getBlockTypeId(x, y, z);
+            check.foundSubID = (byte) snapshot.getBlockData(x, y, z);
+            if (check.foundTypeID != check.typeID || check.foundSubID != check.subID) {
+                broken.add(check);
+                continue;
+            }
+
+            // a single chest next to another chest is a half of a doublechest
+            if (check.singleChest) {
+                if (x == 0 || x == 15 || z == 0 || z == 15) {
+                    // the neighbour may be in another chunk
+                    check.partnerFound = true;
+                } else {
+                    int chest = Material.CHEST.getId();
+                    check.partnerFound = snapshot.getBlockTypeId(x + 1, y, z) == chest || snapshot.getBlockTypeId(x - 1, y, z) == chest || snapshot.getBlockTypeId(x, y, z + 1) == chest || snapshot.getBlockTypeId(x, y, z - 1) == chest;
+                }
+                if (check.partnerFound) {
+                    broken.add(check);
+                }
+            }
+        }
+        return broken;
+    }
+
+    private void onScanDone(List<Check> broken) {
+        this.brokenChecks.addAll(broken);
+        this.pendingScans--;
+        if (this.pendingScans == 0 && this.scanBatchDone) {
+            this.repair();
+        }
+    }
+
+    /**
+     * Phase 2: repair the broken blocks over the next ticks
+     */
+    private void repair() {
+        WorkBatch repairBatch = new WorkBatch(WorkBatch.PRIORITY_LOW);
+        repairBatch.setBudget(Core.settings.getRepairBudget());
+        for (final Check check : this.brokenChecks) {
+            repairBatch.addJob(new Runnable() {
+                @Override
+                public void run() {
+                    repair(check);
+                }
+            });
+        }
+        repairBatch.setCallback(new Runnable() {
+            @Override
+            public void run() {
+                finish();
+            }
+        });
+        Core.workExecutor.submit(repairBatch);
+    }
+
+    private void repair(Check check) {
+        // the lootspot may be merged into a doublechest meanwhile
+        if (this.lootManager.getLootspot(check.location) != check.lootSpot) {
+            return;
+        }
+        if (!check.location.getWorld().isChunkLoaded(check.location.getBlockX() >> 4, check.location.getBlockZ() >> 4)) {
+            this.lootManager.addUncheckedLootspot(check.lootSpot);
+            return;
+        }
+
+        if (check.foundTypeID != check.typeID || check.foundSubID != check.subID) {
+            Block block = check.location.getBlock();
+            block.setTypeIdAndData(check.typeID, check.subID, false);
+            if (check.foundTypeID != check.typeID) {
+                this.recreatedBlocks++;
+                this.reportLines.add("Recreated " + toString(check.location) + " (was " + check.foundTypeID + ":" + check.foundSubID + ")");
+            } else {
+                this.fixedBlocks++;
+                this.reportLines.add("Fixed data " + toString(check.location) + " (was " + check.foundTypeID + ":" + check.foundSubID + ")");
+            }
+        }
+
+        if (check.singleChest && this.lootManager.mergeDoubleChest(check.lootSpot)) {
+            this.mergedChests++;
+            this.reportLines.add("Merged doublechest " + toString(check.location));
+        }
+    }
+
+    private void finish() {
+        this.lootManager.onValidationDone();
+
+        int repairs = this.recreatedBlocks + this.fixedBlocks + this.mergedChests;
+        if (!this.startup && repairs == 0) {
+            return;
+        }
+
+        String summary = "Checked " + this.checkedLootspots + " lootspots: " + this.recreatedBlocks + " recreated, " + this.fixedBlocks + " fixed, " + this.mergedChests + " merged, " + this.waitingLootspots + " waiting for their chunk";
+        Chat.printMessage(repairs > 0 ? ChatColor.RED : ChatColor.GREEN, summary + (repairs > 0 ? " (see '" + this.reportFile.getName() + "')" : "") + "!");
+        this.writeReport(summary);
+    }
+
+    private void writeReport(String summary) {
+        try {
+            // the check at startup starts a new report, the others are appended
+            PrintWriter writer = new PrintWriter(new FileWriter(this.reportFile, !this.startup));
+            try {
+                writer.println("[" + new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date()) + "] " + summary);
+                for (String line : this.reportLines) {
+                    writer.println("    " + line);
+                }
+            } finally {
+                writer.close();
+            }
+        } catch (IOException e) {
+            Chat.printMessage(ChatColor.RED, "Unable to write '" + this.reportFile.getName() + "'!");
+            e.printStackTrace();
+        }
+    }
+
+    private static String toString(Location location) {
+        return location.getWorld().getName() + " , " + location.getBlockX() + " , " + location.getBlockY() + " , " + location.getBlockZ();
+    }
+
+    /**
+     * One block of a lootspot. The expected values are copied on the
+     * mainthread, the found ones are set by the pool.
+     */
+    private static class Check {
+        private final AbstractLootspot lootSpot;
+        private final Location location;
+        private final int typeID;
+        private final byte subID;
+        private final boolean singleChest;
+
+        private int foundTypeID;
+        private byte foundSubID;
+        private boolean partnerFound = false;
+
+        private Check(AbstractLootspot lootSpot, Location location) {
+            this.lootSpot = lootSpot;
+            this.location = location;
+            this.typeID = lootSpot.getBlockID();
+            this.subID = lootSpot.getSubID();
+            this.singleChest = lootSpot instanceof LootChest;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package de.minestar.craftz.manager;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A lock-free queue of commands for the mainthread. Every thread may post
+ * commands, the mainthread drains them once per tick within a time budget.
+ * This way the games are only ever changed by the mainthread.
+ */
+public class Mailbox {
+
+    private final ConcurrentLinkedQueue<Runnable> queue = new ConcurrentLinkedQueue<Runnable>();
+    private final AtomicInteger size = new AtomicInteger(0);
+    private final Thread mainThread;
+    private final long budget;
+
+    public Mailbox(long budget) {
+        this.budget = budget;
+        this.mainThread = Thread.currentThread();
+    }
+
+    /**
+     * Post a command to the mainthread. It is run in the next tick.
+     *
+     * @param command
+     */
+    public void post(Runnable command) {
+        this.queue.offer(command);
+        this.size.incrementAndGet();
+    }
+
+    /**
+     * Run the command directly if we are on the mainthread, otherwise post it.
+     *
+     * @param command
+     */
+    public void execute(Runnable command) {
+        if (this.isMainThread()) {
+            command.run();
+        } else {
+            this.post(command);
+        }
+    }
+
+    public boolean isMainThread() {
+        return Thread.currentThread() == this.mainThread;
+    }
+
+    /**
+     * Run the waiting commands within the budget
+     */
+    public void drain() {
+        this.drain(this.budget);
+    }
+
+    public void drain(long budget) {
+        long start = System.nanoTime();
+        Runnable command;
+        while ((command = this.queue.poll()) != null) {
+            this.size.decrementAndGet();
+            try {
+                command.run();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+
+            // the rest has to wait for the next tick
+            if (System.nanoTime() - start >= budget) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * @return the number of commands waiting
+     */
+    public int getSize() {
+        return size.get();
+    }
+}
@@ -0,0 +1,215 @@
+package de.minestar.craftz.manager;
+
+import org.bukkit.Bukkit;
+import org.bukkit.ChatColor;
+import org.bukkit.Chunk;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.entity.Entity;
+
+import de.minestar.craftz.Core;
+import de.minestar.craftz.data.SurvivalGame;
+import de.minestar.craftz.threads.WorkBatch;
+import de.minestar.craftz.utils.BlockJournal;
+import de.minestar.craftz.utils.BlockKeys;
+import de.minestar.craftz.utils.Chat;
+import de.minestar.craftz.utils.ChunkWriter;
+
+/**
+ * Remembers the original state of every block changed during a match and
+ * restores the arena afterwards, spread over the next ticks. If the arena has
+ * a snapshot, the blocks the journal missed are restored from it afterwards.
+ * The items, arrows and mobs of the match are removed along with the blocks.
+ */
+public class RollbackManager {
+
+    // report the progress every 25 percent
+    private static final int PROGRESS_STEPS = 4;
+
+    private final SurvivalGame game;
+    private final SnapshotManager snapshotManager;
+
+    // the original blocks, the first change of a block wins
+    private BlockJournal changedBlocks = new BlockJournal(1024);
+    private final EntityTracker entityTracker = new EntityTracker();
+
+    private WorkBatch rollbackBatch = null;
+    private int restoredBlocks = 0;
+    private int reportedStep = 0;
+    private boolean finishing = false;
+
+    public RollbackManager(SurvivalGame game, SnapshotManager snapshotManager) {
+        this.game = game;
+        this.snapshotManager = snapshotManager;
+    }
+
+    /**
+     * Remember the block, before it is changed. The block is only read, if it
+     * was not changed before.
+     *
+     * @param block
+     */
+    public void addBlock(Block block) {
+        long key = BlockKeys.journalKey(BlockKeys.getWorldID(block.getWorld()), block.getX(), block.getY(), block.getZ());
+        if (!this.changedBlocks.contains(key)) {
+            this.changedBlocks.add(key, block.getTypeId(), block.getData());
+        }
+    }
+
+    /**
+     * Remember the block, that is already changed
+     *
+     * @param block
+     * @param typeID
+     *            the original type
+     * @param subID
+     *            the original data
+     */
+    public void addBlock(Block block, int typeID, byte subID) {
+        this.changedBlocks.add(BlockKeys.journalKey(BlockKeys.getWorldID(block.getWorld()), block.getX(), block.getY(), block.getZ()), typeID, subID);
+    }
+
+    /**
+     * Remember an entity, that is removed at the next rollback
+     *
+     * @param entity
+     */
+    public void addEntity(Entity entity) {
+        this.entityTracker.track(entity);
+    }
+
+    public void onChunkLoad(Chunk chunk) {
+        this.entityTracker.onChunkLoad(chunk);
+    }
+
+    public void onChunkUnload(Chunk chunk) {
+        this.entityTracker.onChunkUnload(chunk);
+    }
+
+    /**
+     * Restore all changed blocks and remove the entities over the next
+     * ticks. Changes made meanwhile are kept for the next rollback.
+     *
+     * @param callback
+     *            run once the arena is restored, may be <code>null</code>
+     */
+    public void start(final Runnable callback) {
+        if (this.rollbackBatch != null) {
+            // the running rollback takes the new changes with it
+            this.addJobs(this.rollbackBatch);
+            return;
+        }
+
+        this.restoredBlocks = 0;
+        this.entityTracker.resetRemovedEntities();
+        this.reportedStep = 0;
+        final long start = System.currentTimeMillis();
+
+        this.rollbackBatch = new WorkBatch(WorkBatch.PRIORITY_LOW);
+        this.rollbackBatch.setBudget(Core.settings.getRollbackBudget());
+        this.addJobs(this.rollbackBatch);
+        final Runnable done = new Runnable() {
+            @Override
+            public void run() {
+                rollbackBatch = null;
+                game.broadcast(ChatColor.GREEN, "The arena has been reset!");
+                if (callback != null) {
+                    callback.run();
+                }
+            }
+        };
+        this.rollbackBatch.setCallback(new Runnable() {
+            @Override
+            public void run() {
+                Chat.printMessage(ChatColor.GREEN, "Reset of '" + game.getGameName() + "' done: " + restoredBlocks + " blocks, " + entityTracker.getRemovedEntities() + " entities in " + (System.currentTimeMillis() - start) + "ms!");
+
+                // the snapshot is compared in the pool, which is gone while finishing
+                if (finishing || !snapshotManager.hasSnapshot()) {
+                    done.run();
+                } else {
+                    snapshotManager.restore(done);
+                }
+            }
+        });
+
+        // not added to the scheduler of the game, so leaving the game does not cancel it
+        Core.workExecutor.submit(this.rollbackBatch);
+    }
+
+    private void addJobs(final WorkBatch batch) {
+        // one pass over the entities per chunk
+        this.entityTracker.addRemoveJobs(batch);
+
+        // one job per chunk, the blocks of a chunk follow each other
+        final BlockJournal journal = this.changedBlocks;
+        final long[] keys = journal.getKeysInChunkOrder();
+        int start = 0;
+        while (start < keys.length) {
+            int end = start + 1;
+            while (end < keys.length && BlockKeys.getJournalChunk(keys[end]) == BlockKeys.getJournalChunk(keys[start])) {
+                end++;
+            }
+
+            final int from = start, to = end;
+            batch.addJob(new Runnable() {
+                @Override
+                public void run() {
+                    restoreChunk(journal, keys, from, to);
+                    reportProgress(batch);
+                }
+            });
+            start = end;
+        }
+
+        // the journal is read by the jobs, so the next changes get a new one
+        this.changedBlocks = new BlockJournal(Math.max(1024, journal.size()));
+    }
+
+    /**
+     * Restore the blocks of one chunk, the keys from <code>from</code> to
+     * <code>to</code> belong to the same chunk
+     */
+    private void restoreChunk(BlockJournal journal, long[] keys, int from, int to) {
+        World world = Bukkit.getWorld(BlockKeys.getWorldName(BlockKeys.getWorldID(keys[from])));
+        if (world == null) {
+            return;
+        }
+
+        int count = to - from;
+        int[] positions = new int[count];
+        int[] blocks = new int[count];
+        for (int i = 0; i < count; i++) {
+            long key = keys[from + i];
+            int block = journal.get(key);
+            positions[i] = ChunkWriter.getPosition(BlockKeys.getJournalX(key), BlockKeys.getJournalY(key), BlockKeys.getJournalZ(key));
+            blocks[i] = (BlockJournal.getTypeID(block) << 4) | (BlockJournal.getSubID(block) & 0xF);
+        }
+        this.restoredBlocks += ChunkWriter.writeBlocks(world, BlockKeys.getJournalX(keys[from]) >> 4, BlockKeys.getJournalZ(keys[from]) >> 4, positions, blocks, count);
+    }
+
+    private void reportProgress(WorkBatch batch) {
+        int step = batch.getDoneJobs() * PROGRESS_STEPS / batch.getTotalJobs();
+        if (step > this.reportedStep && step < PROGRESS_STEPS) {
+            this.reportedStep = step;
+            this.game.broadcast(ChatColor.GRAY, "Resetting the arena... " + (step * 100 / PROGRESS_STEPS) + "%");
+        }
+    }
+
+    /**
+     * Finish the running rollback right now
+     */
+    public void finish() {
+        if (this.rollbackBatch != null) {
+            this.finishing = true;
+            Core.workExecutor.finish(this.rollbackBatch);
+            this.finishing = false;
+        }
+    }
+
+    /**
+     * @return <b>true</b> while the arena is restored
+     */
+    public boolean isRunning() {
+        return this.rollbackBatch != null;
+    }
+}
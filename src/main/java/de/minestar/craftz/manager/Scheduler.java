@@ -1,30 +1,103 @@
 package de.minestar.craftz.manager;
 
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.ArrayList;
 
+import de.minestar.craftz.threads.Countdown;
+import de.minestar.craftz.threads.GameTask;
+import de.minestar.craftz.threads.WorkBatch;
+
+/**
+ * The per-game handle onto the pluginwide {@link TickScheduler}. It remembers
+ * the tasks of one game, so they can be cancelled all at once.
+ *
+ * Every method may be called from any thread. The tasks, the wheel, the
+ * countdowns and the work are only touched by the mainthread, so the methods
+ * go through the {@link Mailbox}: on the mainthread they run right away,
+ * otherwise at the next servertick, in the order they were called.
+ */
 public class Scheduler {
-    private Timer timer = new Timer();
 
-    public Scheduler() {
-        this.createTimer();
-    }
+    private final String gameName;
+    private final TickScheduler tickScheduler;
+    private final CountdownManager countdownManager;
+    private final WorkExecutor workExecutor;
+    private final ArrayList<GameTask> tasks = new ArrayList<GameTask>();
 
-    private void createTimer() {
-        this.timer = new Timer();
+    public Scheduler(String gameName, TickScheduler tickScheduler, CountdownManager countdownManager, WorkExecutor workExecutor) {
+        this.gameName = gameName;
+        this.tickScheduler = tickScheduler;
+        this.countdownManager = countdownManager;
+        this.workExecutor = workExecutor;
     }
 
     public void cancelTasks() {
-        this.timer.cancel();
-        this.createTimer();
+        this.tickScheduler.getMailbox().execute(new Runnable() {
+            @Override
+            public void run() {
+                for (GameTask task : tasks) {
+                    task.cancel();
+                }
+                tasks.clear();
+            }
+        });
+    }
+
+    public void scheduleDelayedTask(GameTask task, long delay) {
+        this.scheduleDelayedRepeatingTask(task, delay, 0);
+    }
+
+    public void scheduleDelayedRepeatingTask(final GameTask task, final long startDelay, final long period) {
+        this.tickScheduler.getMailbox().execute(new Runnable() {
+            @Override
+            public void run() {
+                tasks.add(task);
+                tickScheduler.schedule(Scheduler.this, task, startDelay, period);
+            }
+        });
     }
 
-    public void scheduleDelayedTask(TimerTask task, long delay) {
-        this.timer.schedule(task, delay);
+    public void startCountdown(final Countdown countdown) {
+        this.tickScheduler.getMailbox().execute(new Runnable() {
+            @Override
+            public void run() {
+                tasks.add(countdown);
+                countdownManager.startCountdown(Scheduler.this, countdown);
+            }
+        });
     }
 
-    public void scheduleDelayedRepeatingTask(TimerTask task, long startDelay, long period) {
-        this.timer.scheduleAtFixedRate(task, startDelay, period);
+    public void submitWork(final WorkBatch batch) {
+        this.tickScheduler.getMailbox().execute(new Runnable() {
+            @Override
+            public void run() {
+                tasks.add(batch);
+                workExecutor.submit(Scheduler.this, batch);
+            }
+        });
     }
 
+    /**
+     * Run all work of this game, that is still waiting, right now. From another
+     * thread, the work is finished at the next servertick.
+     */
+    public void finishWork() {
+        this.tickScheduler.getMailbox().execute(new Runnable() {
+            @Override
+            public void run() {
+                for (GameTask task : new ArrayList<GameTask>(tasks)) {
+                    if (task instanceof WorkBatch) {
+                        workExecutor.finish((WorkBatch) task);
+                    }
+                }
+            }
+        });
+    }
+
+    protected void onTaskDone(GameTask task) {
+        this.tasks.remove(task);
+    }
+
+    public String getGameName() {
+        return gameName;
+    }
 }
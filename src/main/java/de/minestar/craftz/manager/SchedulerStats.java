@@ -0,0 +1,106 @@
+package de.minestar.craftz.manager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+
+import de.minestar.craftz.utils.LatencyHistogram;
+
+/**
+ * Collects how late the scheduled tasks fire and how long they run, per
+ * taskclass and game.
+ */
+public class SchedulerStats {
+
+    private final HashMap<String, TaskStats> stats = new HashMap<String, TaskStats>();
+
+    private int maxPendingTasks = 0;
+    private int maxMailboxSize = 0;
+    private int maxWorkBatches = 0;
+
+    public TaskStats getTaskStats(Class<?> taskClass, String gameName) {
+        String key = taskClass.getSimpleName() + "@" + gameName;
+        TaskStats taskStats = this.stats.get(key);
+        if (taskStats == null) {
+            taskStats = new TaskStats(key);
+            this.stats.put(key, taskStats);
+        }
+        return taskStats;
+    }
+
+    public void recordPendingTasks(int pendingTasks) {
+        this.maxPendingTasks = Math.max(this.maxPendingTasks, pendingTasks);
+    }
+
+    public void recordMailboxSize(int mailboxSize) {
+        this.maxMailboxSize = Math.max(this.maxMailboxSize, mailboxSize);
+    }
+
+    public void recordWorkBatches(int workBatches) {
+        this.maxWorkBatches = Math.max(this.maxWorkBatches, workBatches);
+    }
+
+    public ArrayList<TaskStats> getAllTaskStats() {
+        ArrayList<TaskStats> list = new ArrayList<TaskStats>(this.stats.values());
+        Collections.sort(list);
+        return list;
+    }
+
+    public void reset() {
+        for (TaskStats taskStats : this.stats.values()) {
+            taskStats.lateness.reset();
+            taskStats.duration.reset();
+        }
+        this.maxPendingTasks = 0;
+        this.maxMailboxSize = 0;
+        this.maxWorkBatches = 0;
+    }
+
+    public int getMaxPendingTasks() {
+        return maxPendingTasks;
+    }
+
+    public int getMaxMailboxSize() {
+        return maxMailboxSize;
+    }
+
+    public int getMaxWorkBatches() {
+        return maxWorkBatches;
+    }
+
+    public static class TaskStats implements Comparable<TaskStats> {
+        private final String name;
+        private final LatencyHistogram lateness = new LatencyHistogram();
+        private final LatencyHistogram duration = new LatencyHistogram();
+
+        public TaskStats(String name) {
+            this.name = name;
+        }
+
+        /**
+         * @return the name
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return the milliseconds between the intended and the actual firetime
+         */
+        public LatencyHistogram getLateness() {
+            return lateness;
+        }
+
+        /**
+         * @return the nanoseconds a run takes
+         */
+        public LatencyHistogram getDuration() {
+            return duration;
+        }
+
+        @Override
+        public int compareTo(TaskStats other) {
+            return this.name.compareTo(other.name);
+        }
+    }
+}
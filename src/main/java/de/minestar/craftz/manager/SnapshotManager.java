@@ -0,0 +1,444 @@
+package de.minestar.craftz.manager;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+
+import org.bukkit.Bukkit;
+import org.bukkit.ChatColor;
+import org.bukkit.Chunk;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+
+import de.minestar.craftz.Core;
+import de.minestar.craftz.data.ArenaSnapshot;
+import de.minestar.craftz.threads.WorkBatch;
+import de.minestar.craftz.utils.Chat;
+import de.minestar.craftz.utils.ChunkWriter;
+import de.minestar.craftz.utils.PoolUtils;
+
+/**
+ * Captures the blocks of an arena into an {@link ArenaSnapshot} and restores
+ * everything, that differs from it. This finds the changes the listeners do
+ * not see, like explosions, flowing water or fire.
+ * <p>
+ * A chunk can only change while it is loaded, so only the chunks that are
+ * loaded or were loaded since the last restore are compared. Their sections
+ * are hashed in the pool and only the sections with a different hash are
+ * read from the snapshot.
+ */
+public class SnapshotManager {
+
+    private final String gameName;
+    private final File file;
+    private ArenaSnapshot snapshot = null;
+
+    // the columns of the arena, that were loaded since the last restore
+    private boolean[] loadedColumns = null;
+    private boolean loadingChunk = false;
+    private boolean busy = false;
+
+    // the state of the current capture or restore
+    private WorkBatch scanBatch = null;
+    private int pendingColumns = 0;
+    private boolean failed = false;
+    private int scannedColumns = 0;
+    private int changedSections = 0;
+    private ArrayList<int[]> changes = new ArrayList<int[]>();
+    private ArrayList<Integer> unloadColumns = new ArrayList<Integer>();
+
+    public SnapshotManager(String gameName) {
+        this.gameName = gameName;
+        this.file = new File(new File(Core.INSTANCE.getDataFolder(), gameName), ArenaSnapshot.FILE_NAME);
+        this.open();
+    }
+
+    private void open() {
+        this.close();
+        if (!this.file.exists()) {
+            return;
+        }
+
+        ArenaSnapshot snapshot = new ArenaSnapshot(this.file);
+        try {
+            snapshot.open();
+        } catch (IOException e) {
+            Chat.printMessage(ChatColor.RED, "Unable to load the arenasnapshot of '" + this.gameName + "'!");
+            e.printStackTrace();
+            return;
+        }
+        this.snapshot = snapshot;
+
+        // the server may have stopped during a match
+        this.loadedColumns = new boolean[snapshot.getColumnCount()];
+        Arrays.fill(this.loadedColumns, true);
+    }
+
+    private void close() {
+        if (this.snapshot != null) {
+            this.snapshot.close();
+        }
+        this.snapshot = null;
+        this.loadedColumns = null;
+    }
+
+    public boolean hasSnapshot() {
+        return this.snapshot != null;
+    }
+
+    /**
+     * @return <b>true</b> while a snapshot is captured or restored
+     */
+    public boolean isBusy() {
+        return busy;
+    }
+
+    /**
+     * Remember, that a chunk of the arena was loaded. Called directly from
+     * the event, so no chunk is missed.
+     *
+     * @param chunk
+     */
+    public void onChunkLoad(Chunk chunk) {
+        if (this.snapshot == null || this.loadingChunk || !chunk.getWorld().getName().equalsIgnoreCase(this.snapshot.getWorldName())) {
+            return;
+        }
+        int column = this.snapshot.getColumn(chunk.getX(), chunk.getZ());
+        if (column >= 0) {
+            this.loadedColumns[column] = true;
+        }
+    }
+
+    private ChunkSnapshot getChunkSnapshot(World world, int chunkX, int chunkZ) {
+        this.loadingChunk = true;
+        try {
+            return world.getChunkAt(chunkX, chunkZ).getChunkSnapshot();
+        } finally {
+            this.loadingChunk = false;
+        }
+    }
+
+    // //////////////////////////
+    //
+    // Capture
+    //
+    // //////////////////////////
+
+    /**
+     * Capture the chunks of the arena into a new snapshot. The chunks are
+     * copied over the next ticks, encoded and written by the pool.
+     *
+     * @param sender
+     *            gets the result
+     */
+    public void capture(final World world, final int minChunkX, final int minChunkZ, final int maxChunkX, final int maxChunkZ, final Player sender) {
+        final Executor pool = Core.gameManager.getLoaderPool();
+        final Mailbox mailbox = Core.tickScheduler.getMailbox();
+        final int columnsZ = maxChunkZ - minChunkZ + 1;
+        final int columns = (maxChunkX - minChunkX + 1) * columnsZ;
+        final long[] hashes = new long[columns * ArenaSnapshot.SECTIONS];
+        final byte[][] sections = new byte[columns * ArenaSnapshot.SECTIONS][];
+        final long start = System.currentTimeMillis();
+
+        this.busy = true;
+        this.failed = false;
+        this.pendingColumns = 0;
+        this.scanBatch = new WorkBatch(WorkBatch.PRIORITY_LOW);
+        this.scanBatch.setBudget(Core.settings.getRollbackBudget());
+        for (int index = 0; index < columns; index++) {
+            final int column = index;
+            this.scanBatch.addJob(new Runnable() {
+                @Override
+                public void run() {
+                    int chunkX = minChunkX + column / columnsZ;
+                    int chunkZ = minChunkZ + column % columnsZ;
+                    boolean wasLoaded = world.isChunkLoaded(chunkX, chunkZ);
+                    final ChunkSnapshot chunk = getChunkSnapshot(world, chunkX, chunkZ);
+                    if (!wasLoaded) {
+                        world.unloadChunkRequest(chunkX, chunkZ, true);
+                    }
+
+                    pendingColumns++;
+                    PoolUtils.execute(pool, new Runnable() {
+                        @Override
+                        public void run() {
+                            final boolean success = encodeColumn(chunk, column, hashes, sections);
+                            mailbox.post(new Runnable() {
+                                @Override
+                                public void run() {
+                                    failed |= !success;
+                                    pendingColumns--;
+                                    if (scanBatch == null && pendingColumns == 0) {
+                                        writeSnapshot(world.getName(), minChunkX, minChunkZ, maxChunkX, maxChunkZ, hashes, sections, start, sender);
+                                    }
+                                }
+                            });
+                        }
+                    });
+                }
+            });
+        }
+        this.scanBatch.setCallback(new Runnable() {
+            @Override
+            public void run() {
+                scanBatch = null;
+                if (pendingColumns == 0) {
+                    writeSnapshot(world.getName(), minChunkX, minChunkZ, maxChunkX, maxChunkZ, hashes, sections, start, sender);
+                }
+            }
+        });
+        Core.workExecutor.submit(this.scanBatch);
+    }
+
+    /**
+     * Hash and encode the sections of a chunk, runs in the pool
+     */
+    private static boolean encodeColumn(ChunkSnapshot chunk, int column, long[] hashes, byte[][] sections) {
+        try {
+            for (int section = 0; section < ArenaSnapshot.SECTIONS; section++) {
+                int index = column * ArenaSnapshot.SECTIONS + section;
+                if (chunk.isSectionEmpty(section)) {
+                    hashes[index] = ArenaSnapshot.EMPTY_HASH;
+                    continue;
+                }
+                int[] values = ArenaSnapshot.getSection(chunk, section);
+                hashes[index] = ArenaSnapshot.hash(values);
+                sections[index] = ArenaSnapshot.encodeSection(values);
+            }
+            return true;
+        } catch (Exception e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Write the captured sections in the pool and open the new snapshot
+     */
+    private void writeSnapshot(final String worldName, final int minChunkX, final int minChunkZ, final int maxChunkX, final int maxChunkZ, final long[] hashes, final byte[][] sections, final long start, final Player sender) {
+        if (this.failed) {
+            this.busy = false;
+            sender.sendMessage(ChatColor.RED + "Unable to capture the arena, see the console!");
+            return;
+        }
+
+        // the old file is replaced, so it must not be open anymore
+        this.close();
+
+        final Mailbox mailbox = Core.tickScheduler.getMailbox();
+        PoolUtils.execute(Core.gameManager.getLoaderPool(), new Runnable() {
+            @Override
+            public void run() {
+                boolean success = true;
+                try {
+                    ArenaSnapshot.write(file, worldName, minChunkX, minChunkZ, maxChunkX, maxChunkZ, hashes, sections);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                    success = false;
+                }
+                final boolean written = success;
+                mailbox.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        busy = false;
+                        if (!written) {
+                            // the old snapshot is still there
+                            open();
+                            sender.sendMessage(ChatColor.RED + "Unable to write the arenasnapshot, see the console!");
+                            return;
+                        }
+
+                        // the world is like the snapshot now
+                        open();
+                        if (loadedColumns != null) {
+                            Arrays.fill(loadedColumns, false);
+                        }
+                        sender.sendMessage(ChatColor.GREEN + "Captured " + (hashes.length / ArenaSnapshot.SECTIONS) + " chunks in " + (System.currentTimeMillis() - start) + "ms (" + (file.length() / 1024) + " KB)!");
+                    }
+                });
+            }
+        });
+    }
+
+    // //////////////////////////
+    //
+    // Restore
+    //
+    // //////////////////////////
+
+    /**
+     * Restore all blocks, that differ from the snapshot, over the next ticks
+     *
+     * @param callback
+     *            run once the arena is restored
+     */
+    public void restore(final Runnable callback) {
+        final World world = (this.snapshot != null) ? Bukkit.getWorld(this.snapshot.getWorldName()) : null;
+        if (world == null || this.busy) {
+            callback.run();
+            return;
+        }
+
+        final ArenaSnapshot snapshot = this.snapshot;
+        final Executor pool = Core.gameManager.getLoaderPool();
+        final Mailbox mailbox = Core.tickScheduler.getMailbox();
+        final long start = System.currentTimeMillis();
+
+        this.busy = true;
+        this.pendingColumns = 0;
+        this.scannedColumns = 0;
+        this.changedSections = 0;
+        this.changes = new ArrayList<int[]>();
+        this.unloadColumns = new ArrayList<Integer>();
+
+        // phase 1: compare the chunks, that may have changed
+        this.scanBatch = new WorkBatch(WorkBatch.PRIORITY_LOW);
+        this.scanBatch.setBudget(Core.settings.getRollbackBudget());
+        for (int index = 0; index < snapshot.getColumnCount(); index++) {
+            final int column = index;
+            final int chunkX = snapshot.getChunkX(column);
+            final int chunkZ = snapshot.getChunkZ(column);
+            if (!this.loadedColumns[column] && !world.isChunkLoaded(chunkX, chunkZ)) {
+                continue;
+            }
+
+            this.scanBatch.addJob(new Runnable() {
+                @Override
+                public void run() {
+                    if (!world.isChunkLoaded(chunkX, chunkZ)) {
+                        unloadColumns.add(column);
+                    }
+                    final ChunkSnapshot chunk = getChunkSnapshot(world, chunkX, chunkZ);
+                    loadedColumns[column] = false;
+                    scannedColumns++;
+
+                    pendingColumns++;
+                    PoolUtils.execute(pool, new Runnable() {
+                        @Override
+                        public void run() {
+                            final int[] columnChanges = compareColumn(snapshot, chunk, column);
+                            mailbox.post(new Runnable() {
+                                @Override
+                                public void run() {
+                                    onColumnCompared(world, column, columnChanges, callback, start);
+                                }
+                            });
+                        }
+                    });
+                }
+            });
+        }
+        this.scanBatch.setCallback(new Runnable() {
+            @Override
+            public void run() {
+                scanBatch = null;
+                if (pendingColumns == 0) {
+                    repair(world, callback, start);
+                }
+            }
+        });
+        Core.workExecutor.submit(this.scanBatch);
+    }
+
+    /**
+     * Compare a chunk with the snapshot, runs in the pool
+     *
+     * @return the changes as pairs of (section << 12 | index, block), the
+     *         first entry is the number of changed sections, or
+     *         <code>null</code> if the snapshot could not be read
+     */
+    private static int[] compareColumn(ArenaSnapshot snapshot, ChunkSnapshot chunk, int column) {
+        try {
+            int[] result = new int[17];
+            int size = 1;
+            for (int section = 0; section < ArenaSnapshot.SECTIONS; section++) {
+                boolean empty = chunk.isSectionEmpty(section);
+                int[] values = empty ? null : ArenaSnapshot.getSection(chunk, section);
+                long hash = empty ? ArenaSnapshot.EMPTY_HASH : ArenaSnapshot.hash(values);
+                if (hash == snapshot.getHash(column, section)) {
+                    continue;
+                }
+
+                // only this section is read from the snapshot
+                result[0]++;
+                int[] original = snapshot.readSection(column, section);
+                for (int index = 0; index < ArenaSnapshot.SECTION_SIZE; index++) {
+                    int value = empty ? 0 : values[index];
+                    if (value != original[index]) {
+                        if (size + 2 > result.length) {
+                            result = Arrays.copyOf(result, result.length * 2);
+                        }
+                        result[size++] = (section << 12) | index;
+                        result[size++] = original[index];
+                    }
+                }
+            }
+            return Arrays.copyOf(result, size);
+        } catch (Exception e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    private void onColumnCompared(World world, int column, int[] columnChanges, Runnable callback, long start) {
+        if (columnChanges == null) {
+            // try again next time
+            this.loadedColumns[column] = true;
+            Chat.printMessage(ChatColor.RED, "Unable to read the arenasnapshot of '" + this.gameName + "'!");
+        } else if (columnChanges.length > 1) {
+            this.changedSections += columnChanges[0];
+            columnChanges[0] = column;
+            this.changes.add(columnChanges);
+        }
+
+        this.pendingColumns--;
+        if (this.scanBatch == null && this.pendingColumns == 0) {
+            this.repair(world, callback, start);
+        }
+    }
+
+    /**
+     * Phase 2: write the changed blocks over the next ticks, one chunk per
+     * job
+     */
+    private void repair(final World world, final Runnable callback, final long start) {
+        final int[] restoredBlocks = {0};
+        WorkBatch repairBatch = new WorkBatch(WorkBatch.PRIORITY_LOW);
+        repairBatch.setBudget(Core.settings.getRollbackBudget());
+        for (final int[] columnChanges : this.changes) {
+            final int chunkX = this.snapshot.getChunkX(columnChanges[0]);
+            final int chunkZ = this.snapshot.getChunkZ(columnChanges[0]);
+            repairBatch.addJob(new Runnable() {
+                @Override
+                public void run() {
+                    // (section << 12 | index) is already the position in the chunk
+                    int count = (columnChanges.length - 1) / 2;
+                    int[] positions = new int[count];
+                    int[] blocks = new int[count];
+                    for (int i = 0; i < count; i++) {
+                        positions[i] = columnChanges[1 + i * 2];
+                        blocks[i] = columnChanges[2 + i * 2];
+                    }
+                    restoredBlocks[0] += ChunkWriter.writeBlocks(world, chunkX, chunkZ, positions, blocks, count);
+                }
+            });
+        }
+        repairBatch.setCallback(new Runnable() {
+            @Override
+            public void run() {
+                // unload the chunks, that were only loaded for the restore
+                for (int column : unloadColumns) {
+                    world.unloadChunkRequest(snapshot.getChunkX(column), snapshot.getChunkZ(column), true);
+                }
+                busy = false;
+                Chat.printMessage(ChatColor.GREEN, "Restored " + restoredBlocks[0] + " blocks of '" + gameName + "' from the snapshot: " + changedSections + " changed sections in " + scannedColumns + " of " + snapshot.getColumnCount() + " chunks, " + (System.currentTimeMillis() - start) + "ms!");
+                changes = new ArrayList<int[]>();
+                callback.run();
+            }
+        });
+        Core.workExecutor.submit(repairBatch);
+    }
+}
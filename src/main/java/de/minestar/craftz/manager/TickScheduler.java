@@ -0,0 +1,288 @@
+package de.minestar.craftz.manager;
+
+import java.util.ArrayList;
+
+import org.bukkit.Bukkit;
+
+import de.minestar.craftz.Core;
+import de.minestar.craftz.threads.GameTask;
+import de.minestar.craftz.utils.GameClock;
+
+/**
+ * Pluginwide scheduler for all games. It is driven by the servertick and runs
+ * every task on the mainthread. The tasks are stored in a hierarchical timing
+ * wheel, so scheduling, cancelling and every tick are O(1) no matter how many
+ * games are running.
+ *
+ * The ticks are taken from a {@link GameClock}: every servertick the scheduler
+ * catches up with the clock, so a lagging server does not stretch the phases
+ * and a manual clock can fast-forward complete matches.
+ *
+ * Before the ticks are run, the {@link Mailbox} is drained, so commands from
+ * other threads are applied on the mainthread. Tasks with a budget per
+ * servertick are run once afterwards, they are not part of the catch-up.
+ */
+public class TickScheduler implements Runnable {
+
+    public static final int TICKS_PER_SECOND = 20;
+    public static final int MILLIS_PER_TICK = 1000 / TICKS_PER_SECOND;
+
+    private static final int WHEEL_BITS = 6;
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    private static final int LEVELS = 4;
+
+    private final Entry[][] wheels = new Entry[LEVELS][WHEEL_SIZE];
+    private Entry overflow = null;
+
+    private final GameClock clock;
+    private final Mailbox mailbox;
+    private final long startTime;
+
+    private final SchedulerStats stats = new SchedulerStats();
+    private final ArrayList<GameTask> serverTickTasks = new ArrayList<GameTask>();
+    private final ArrayList<SchedulerStats.TaskStats> serverTickStats = new ArrayList<SchedulerStats.TaskStats>();
+    private final SchedulerStats.TaskStats mailboxStats;
+    private int pendingTasks = 0;
+    private long lastServerTick = -1;
+
+    private long currentTick = 0;
+    private int bukkitTaskID = -1;
+
+    public TickScheduler(GameClock clock, Mailbox mailbox) {
+        this.clock = clock;
+        this.mailbox = mailbox;
+        this.startTime = clock.currentTimeMillis();
+        this.mailboxStats = this.stats.getTaskStats(Mailbox.class, "global");
+    }
+
+    public void onEnable() {
+        this.bukkitTaskID = Bukkit.getScheduler().scheduleSyncRepeatingTask(Core.INSTANCE, this, 1, 1);
+    }
+
+    public void onDisable() {
+        if (this.bukkitTaskID != -1) {
+            Bukkit.getScheduler().cancelTask(this.bukkitTaskID);
+            this.bukkitTaskID = -1;
+        }
+
+        // nobody is ticking anymore, so run the rest of the mailbox now
+        this.mailbox.drain(Long.MAX_VALUE);
+    }
+
+    // /////////////////////////////////////////////////////////
+    //
+    // Scheduling
+    //
+    // /////////////////////////////////////////////////////////
+
+    public void schedule(Scheduler owner, GameTask task, long delay, long period) {
+        String gameName = owner == null ? "global" : owner.getGameName();
+        Entry entry = new Entry(owner, task, this.currentTick + Math.max(1, delay), period, this.stats.getTaskStats(task.getClass(), gameName));
+        this.pendingTasks++;
+        this.insert(entry);
+    }
+
+    /**
+     * Run a task once every servertick, after the ticks of the wheel. After
+     * lag it runs once, not once per missed tick. The task is removed, once it
+     * is cancelled.
+     */
+    public void scheduleEveryServerTick(GameTask task) {
+        this.serverTickTasks.add(task);
+        this.serverTickStats.add(this.stats.getTaskStats(task.getClass(), "global"));
+    }
+
+    private void insert(Entry entry) {
+        // find the highest level, on which the deadline differs from now
+        int level = LEVELS - 1;
+        while (level > 0 && (entry.deadline >> (level * WHEEL_BITS)) == (this.currentTick >> (level * WHEEL_BITS))) {
+            level--;
+        }
+
+        // too far in the future for the wheels
+        if ((entry.deadline >> (LEVELS * WHEEL_BITS)) != (this.currentTick >> (LEVELS * WHEEL_BITS))) {
+            entry.next = this.overflow;
+            this.overflow = entry;
+            return;
+        }
+
+        int slot = (int) ((entry.deadline >> (level * WHEEL_BITS)) & WHEEL_MASK);
+        entry.next = this.wheels[level][slot];
+        this.wheels[level][slot] = entry;
+    }
+
+    // /////////////////////////////////////////////////////////
+    //
+    // Ticking
+    //
+    // /////////////////////////////////////////////////////////
+
+    @Override
+    public void run() {
+        // how much later than one tick after the last one this servertick came
+        long now = this.clock.currentTimeMillis();
+        long lateness = this.lastServerTick == -1 ? 0 : Math.max(0, now - this.lastServerTick - MILLIS_PER_TICK);
+        this.lastServerTick = now;
+
+        this.stats.recordMailboxSize(this.mailbox.getSize());
+        long start = System.nanoTime();
+        this.mailbox.drain();
+        this.record(this.mailboxStats, lateness, start);
+
+        this.advance();
+        this.runServerTickTasks(lateness);
+        this.stats.recordPendingTasks(this.pendingTasks);
+    }
+
+    private void runServerTickTasks(long lateness) {
+        int index = 0;
+        while (index < this.serverTickTasks.size()) {
+            GameTask task = this.serverTickTasks.get(index);
+            if (task.isCancelled()) {
+                this.serverTickTasks.remove(index);
+                this.serverTickStats.remove(index);
+                continue;
+            }
+            this.runTask(task, this.serverTickStats.get(index), lateness);
+            index++;
+        }
+    }
+
+    private void runTask(GameTask task, SchedulerStats.TaskStats taskStats, long lateness) {
+        long start = System.nanoTime();
+        try {
+            task.run();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        this.record(taskStats, lateness, start);
+    }
+
+    /**
+     * @param start
+     *            the {@link System#nanoTime()} the run started at
+     */
+    private void record(SchedulerStats.TaskStats taskStats, long lateness, long start) {
+        taskStats.getLateness().record(lateness);
+        taskStats.getDuration().record(System.nanoTime() - start);
+    }
+
+    /**
+     * Run all ticks up to the current time of the clock
+     */
+    public void advance() {
+        long targetTick = (this.clock.currentTimeMillis() - this.startTime) / MILLIS_PER_TICK;
+        while (this.currentTick < targetTick) {
+            this.tick();
+        }
+    }
+
+    private void tick() {
+        this.currentTick++;
+
+        // move the overflowing entries back into the wheels
+        if ((this.currentTick & ((1L << (LEVELS * WHEEL_BITS)) - 1)) == 0) {
+            Entry entry = this.overflow;
+            this.overflow = null;
+            this.reinsert(entry);
+        }
+
+        // cascade the upper levels down, highest level first
+        for (int level = LEVELS - 1; level > 0; level--) {
+            if ((this.currentTick & ((1L << (level * WHEEL_BITS)) - 1)) == 0) {
+                int slot = (int) ((this.currentTick >> (level * WHEEL_BITS)) & WHEEL_MASK);
+                Entry entry = this.wheels[level][slot];
+                this.wheels[level][slot] = null;
+                this.reinsert(entry);
+            }
+        }
+
+        // fire everything in the current slot
+        int slot = (int) (this.currentTick & WHEEL_MASK);
+        Entry entry = this.wheels[0][slot];
+        this.wheels[0][slot] = null;
+        while (entry != null) {
+            Entry next = entry.next;
+            this.fire(entry);
+            entry = next;
+        }
+    }
+
+    private void reinsert(Entry entry) {
+        while (entry != null) {
+            Entry next = entry.next;
+            if (!entry.task.isCancelled()) {
+                this.insert(entry);
+            } else {
+                this.pendingTasks--;
+            }
+            entry = next;
+        }
+    }
+
+    private void fire(Entry entry) {
+        if (entry.task.isCancelled()) {
+            this.pendingTasks--;
+            if (entry.owner != null) {
+                entry.owner.onTaskDone(entry.task);
+            }
+            return;
+        }
+
+        // how late are we?
+        long intendedTime = this.startTime + entry.deadline * MILLIS_PER_TICK;
+        this.runTask(entry.task, entry.stats, this.clock.currentTimeMillis() - intendedTime);
+
+        // reschedule repeating tasks
+        if (entry.period > 0 && !entry.task.isCancelled()) {
+            entry.deadline += entry.period;
+            this.insert(entry);
+        } else {
+            this.pendingTasks--;
+            if (entry.owner != null) {
+                entry.owner.onTaskDone(entry.task);
+            }
+        }
+    }
+
+    public long getCurrentTick() {
+        return currentTick;
+    }
+
+    public GameClock getClock() {
+        return clock;
+    }
+
+    public Mailbox getMailbox() {
+        return mailbox;
+    }
+
+    public SchedulerStats getStats() {
+        return stats;
+    }
+
+    /**
+     * @return the number of tasks in the wheel
+     */
+    public int getPendingTasks() {
+        return pendingTasks;
+    }
+
+    private static class Entry {
+        private final Scheduler owner;
+        private final GameTask task;
+        private final long period;
+        private final SchedulerStats.TaskStats stats;
+        private long deadline;
+        private Entry next;
+
+        public Entry(Scheduler owner, GameTask task, long deadline, long period, SchedulerStats.TaskStats stats) {
+            this.owner = owner;
+            this.task = task;
+            this.deadline = deadline;
+            this.period = period;
+            this.stats = stats;
+        }
+    }
+}
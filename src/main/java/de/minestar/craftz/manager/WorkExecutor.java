@@ -0,0 +1,126 @@
+package de.minestar.craftz.manager;
+
+import java.util.ArrayList;
+
+import de.minestar.craftz.threads.GameTask;
+import de.minestar.craftz.threads.WorkBatch;
+
+/**
+ * Runs batches of small jobs over successive ticks, without using more than
+ * the budget per tick. Batches with a higher priority are run first, batches
+ * with the same priority in the order they were submitted.
+ */
+public class WorkExecutor extends GameTask {
+
+    private final TickScheduler tickScheduler;
+    private final ArrayList<WorkBatch> batches = new ArrayList<WorkBatch>();
+    // the scheduler of the game per batch, null for pluginwide batches
+    private final ArrayList<Scheduler> owners = new ArrayList<Scheduler>();
+    private final long budget;
+
+    public WorkExecutor(TickScheduler tickScheduler, long budget) {
+        this.tickScheduler = tickScheduler;
+        this.budget = budget;
+    }
+
+    public void onEnable() {
+        // once per servertick, a lagging server must not run the budget several times
+        this.tickScheduler.scheduleEveryServerTick(this);
+    }
+
+    public void onDisable() {
+        this.cancel();
+
+        // nobody is ticking anymore, so finish everything now
+        while (!this.batches.isEmpty()) {
+            this.remove(0).run();
+        }
+    }
+
+    public void submit(WorkBatch batch) {
+        this.submit(null, batch);
+    }
+
+    /**
+     * Submit a batch of a game. The scheduler of the game is told, once the
+     * batch is done.
+     */
+    public void submit(Scheduler owner, WorkBatch batch) {
+        int index = this.batches.size();
+        while (index > 0 && this.batches.get(index - 1).getPriority() < batch.getPriority()) {
+            index--;
+        }
+        this.batches.add(index, batch);
+        this.owners.add(index, owner);
+    }
+
+    private WorkBatch remove(int index) {
+        WorkBatch batch = this.batches.remove(index);
+        Scheduler owner = this.owners.remove(index);
+        if (owner != null) {
+            owner.onTaskDone(batch);
+        }
+        return batch;
+    }
+
+    /**
+     * Run everything that is left of a batch right now
+     *
+     * @param batch
+     */
+    public void finish(WorkBatch batch) {
+        int index = this.batches.indexOf(batch);
+        if (index != -1) {
+            this.remove(index).run();
+        }
+    }
+
+    @Override
+    public void run() {
+        this.tickScheduler.getStats().recordWorkBatches(this.batches.size());
+
+        long start = System.nanoTime();
+        int index = 0;
+        while (index < this.batches.size()) {
+            WorkBatch batch = this.batches.get(index);
+            if (batch.isCancelled()) {
+                this.remove(index);
+                continue;
+            }
+
+            if (batch.isDone()) {
+                this.remove(index);
+                batch.complete();
+                continue;
+            }
+
+            long batchStart = System.nanoTime();
+            while (!batch.isCancelled() && !batch.isDone()) {
+                try {
+                    batch.runNext();
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+
+                // the rest has to wait for the next tick
+                long now = System.nanoTime();
+                if (now - start >= this.budget) {
+                    return;
+                }
+
+                // this batch is done for this tick, try the next one
+                if (now - batchStart >= batch.getBudget()) {
+                    index++;
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the number of batches waiting
+     */
+    public int getSize() {
+        return batches.size();
+    }
+}
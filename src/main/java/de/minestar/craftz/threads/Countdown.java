@@ -0,0 +1,84 @@
+package de.minestar.craftz.threads;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.bukkit.ChatColor;
+
+import de.minestar.craftz.data.GameState;
+import de.minestar.craftz.data.SurvivalGame;
+import de.minestar.craftz.manager.TickScheduler;
+import de.minestar.craftz.utils.Chat;
+
+/**
+ * A countdown for one phase of a game. All announcements are rendered when the
+ * countdown is created, the {@link de.minestar.craftz.manager.CountdownManager}
+ * only has to compare ticks afterwards.
+ */
+public class Countdown extends GameTask {
+
+    private final SurvivalGame game;
+    private final GameState gameState;
+    private final long duration;
+
+    private final int[] offsets;
+    private final String[] messages;
+    private int cursor = 0;
+    private long endTick = 0;
+    private TickScheduler tickScheduler;
+
+    public Countdown(SurvivalGame game, GameState gameState, long duration, List<Integer> announcements, String text) {
+        this.game = game;
+        this.gameState = gameState;
+        this.duration = duration;
+
+        // only use the offsets inside of the phase, the start of the phase is announced anyway
+        int[] sorted = new int[announcements.size()];
+        int count = 0;
+        for (int offset : announcements) {
+            if (offset > 0 && offset < duration) {
+                sorted[count++] = offset;
+            }
+        }
+        Arrays.sort(sorted, 0, count);
+
+        // render the messages, highest offset first
+        this.offsets = new int[count];
+        this.messages = new String[count];
+        for (int i = 0; i < count; i++) {
+            this.offsets[i] = sorted[count - 1 - i];
+            this.messages[i] = ChatColor.GRAY + text + Chat.secondsToMinutes(this.offsets[i]) + "...";
+        }
+    }
+
+    public void start(TickScheduler tickScheduler) {
+        this.tickScheduler = tickScheduler;
+        this.endTick = tickScheduler.getCurrentTick() + this.duration * TickScheduler.TICKS_PER_SECOND;
+    }
+
+    @Override
+    public void run() {
+        // the countdown ends with its phase
+        if (!this.game.getGameState().equals(this.gameState)) {
+            this.cancel();
+            return;
+        }
+
+        long currentTick = this.tickScheduler.getCurrentTick();
+        while (this.cursor < this.offsets.length && currentTick >= this.getTick(this.cursor)) {
+            // if we are late, only the most recent announcement is shown
+            if (this.cursor + 1 >= this.offsets.length || currentTick < this.getTick(this.cursor + 1)) {
+                this.game.broadcast(this.messages[this.cursor]);
+            }
+            this.cursor++;
+        }
+
+        if (this.cursor >= this.offsets.length) {
+            this.cancel();
+        }
+    }
+
+    private long getTick(int index) {
+        return this.endTick - this.offsets[index] * TickScheduler.TICKS_PER_SECOND;
+    }
+}
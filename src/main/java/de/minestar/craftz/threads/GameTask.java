@@ -0,0 +1,24 @@
+package de.minestar.craftz.threads;
+
+public abstract class GameTask implements Runnable {
+
+    private boolean cancelled = false;
+
+    /**
+     * Cancel this task. A cancelled task will never run again.
+     *
+     * @return <b>true</b> if the task was active before, otherwise <b>false</b>
+     */
+    public boolean cancel() {
+        boolean wasActive = !this.cancelled;
+        this.cancelled = true;
+        return wasActive;
+    }
+
+    /**
+     * @return the cancelled
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+}
@@ -0,0 +1,21 @@
+package de.minestar.craftz.threads;
+
+import de.minestar.craftz.data.SurvivalGame;
+
+public class LazyRefillThread extends GameTask {
+
+    private final SurvivalGame game;
+
+    public LazyRefillThread(SurvivalGame game) {
+        this.game = game;
+    }
+
+    @Override
+    public void run() {
+        if (this.game.isGameInLobby() || this.game.isGameInEnd()) {
+            this.cancel();
+            return;
+        }
+        this.game.refreshLootNearPlayers();
+    }
+}
@@ -1,10 +1,8 @@
 package de.minestar.craftz.threads;
 
-import java.util.TimerTask;
-
 import de.minestar.craftz.data.SurvivalGame;
 
-public class LootRefillThread extends TimerTask {
+public class LootRefillThread extends GameTask {
 
     private final SurvivalGame game;
 
@@ -15,8 +13,7 @@ public class LootRefillThread extends TimerTask {
     @Override
     public void run() {
         if (this.game.isGameInPrePVP() || game.isGameInSurvival()) {
-            this.game.refillLoot();
-            this.game.broadcastInfo("All chests have been refilled!");
+            this.game.refillLoot("All chests have been refilled!");
         }
     }
 }
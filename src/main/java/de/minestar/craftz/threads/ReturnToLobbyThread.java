@@ -1,13 +1,10 @@
 package de.minestar.craftz.threads;
 
-import java.util.TimerTask;
+import org.bukkit.ChatColor;
 
-import org.bukkit.Bukkit;
-
-import de.minestar.craftz.Core;
 import de.minestar.craftz.data.SurvivalGame;
 
-public class ReturnToLobbyThread extends TimerTask {
+public class ReturnToLobbyThread extends GameTask {
 
     private final SurvivalGame game;
 
@@ -17,6 +14,11 @@ public class ReturnToLobbyThread extends TimerTask {
 
     @Override
     public void run() {
-        Bukkit.getScheduler().scheduleSyncDelayedTask(Core.INSTANCE, new ReturnToLobbyTask(this.game));
+        if (this.game.isGameInEnd()) {
+            this.game.broadcast(ChatColor.RED + SurvivalGame.LIMITER);
+            this.game.broadcastInfo("Welcome to the lobby!");
+            this.game.broadcast(ChatColor.RED + SurvivalGame.LIMITER);
+            this.game.goToLobby();
+        }
     }
 }
@@ -1,13 +1,10 @@
 package de.minestar.craftz.threads;
 
-import java.util.TimerTask;
+import org.bukkit.ChatColor;
 
-import org.bukkit.Bukkit;
-
-import de.minestar.craftz.Core;
 import de.minestar.craftz.data.SurvivalGame;
 
-public class StartDeathmatchThread extends TimerTask {
+public class StartDeathmatchThread extends GameTask {
 
     private final SurvivalGame game;
 
@@ -17,7 +14,12 @@ public class StartDeathmatchThread extends TimerTask {
 
     @Override
     public void run() {
-        Bukkit.getScheduler().scheduleSyncDelayedTask(Core.INSTANCE, new StartDeathmatchTask(this.game));
+        if (this.game.isGameInSurvival()) {
+            this.game.broadcast(ChatColor.RED + SurvivalGame.LIMITER);
+            this.game.broadcastInfo("Time for deathmatch!");
+            this.game.broadcast(ChatColor.RED + SurvivalGame.LIMITER);
+            this.game.goToDeathmatch();
+        }
     }
 
 }
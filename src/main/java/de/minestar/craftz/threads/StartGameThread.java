@@ -1,13 +1,10 @@
 package de.minestar.craftz.threads;
 
-import java.util.TimerTask;
+import org.bukkit.ChatColor;
 
-import org.bukkit.Bukkit;
-
-import de.minestar.craftz.Core;
 import de.minestar.craftz.data.SurvivalGame;
 
-public class StartGameThread extends TimerTask {
+public class StartGameThread extends GameTask {
 
     private final SurvivalGame game;
 
@@ -17,6 +14,12 @@ public class StartGameThread extends TimerTask {
 
     @Override
     public void run() {
-        Bukkit.getScheduler().scheduleSyncDelayedTask(Core.INSTANCE, new StartGameTask(this.game));
+        if (this.game.isGameInPreGame()) {
+            this.game.broadcast(ChatColor.RED + SurvivalGame.LIMITER);
+            this.game.broadcastInfo("The game has started!");
+            this.game.broadcast(ChatColor.RED + SurvivalGame.LIMITER);
+            this.game.goToPrePVP();
+        }
     }
+
 }
@@ -1,13 +1,10 @@
 package de.minestar.craftz.threads;
 
-import java.util.TimerTask;
+import org.bukkit.ChatColor;
 
-import org.bukkit.Bukkit;
-
-import de.minestar.craftz.Core;
 import de.minestar.craftz.data.SurvivalGame;
 
-public class StartPVPThread extends TimerTask {
+public class StartPVPThread extends GameTask {
 
     private final SurvivalGame game;
 
@@ -17,7 +14,11 @@ public class StartPVPThread extends TimerTask {
 
     @Override
     public void run() {
-        Bukkit.getScheduler().scheduleSyncDelayedTask(Core.INSTANCE, new StartPVPTask(this.game));
+        if (this.game.isGameInPrePVP()) {
+            this.game.broadcast(ChatColor.RED + SurvivalGame.LIMITER);
+            this.game.broadcastInfo("PVP is now enabled!");
+            this.game.broadcast(ChatColor.RED + SurvivalGame.LIMITER);
+            this.game.goToSurvival();
+        }
     }
-
 }
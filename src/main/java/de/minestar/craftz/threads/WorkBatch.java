@@ -0,0 +1,110 @@
+package de.minestar.craftz.threads;
+
+import java.util.ArrayList;
+
+/**
+ * A batch of small jobs for the {@link de.minestar.craftz.manager.WorkExecutor}.
+ * The jobs are run in the order they were added, spread over as many ticks as
+ * needed. The callback is run once all jobs are done. A batch may have its
+ * own budget per tick, so it leaves time for the batches behind it.
+ */
+public class WorkBatch extends GameTask {
+
+    public static final int PRIORITY_LOW = 0;
+    public static final int PRIORITY_NORMAL = 1;
+    public static final int PRIORITY_HIGH = 2;
+
+    private final int priority;
+    private final ArrayList<Runnable> jobs = new ArrayList<Runnable>();
+    private Runnable callback = null;
+    private long budget = Long.MAX_VALUE;
+    private int cursor = 0;
+
+    public WorkBatch(int priority) {
+        this.priority = priority;
+    }
+
+    public void addJob(Runnable job) {
+        this.jobs.add(job);
+    }
+
+    public void setCallback(Runnable callback) {
+        this.callback = callback;
+    }
+
+    /**
+     * Limit the time this batch may use per tick
+     *
+     * @param budget
+     *            the time in nanoseconds
+     */
+    public void setBudget(long budget) {
+        this.budget = budget;
+    }
+
+    public boolean isDone() {
+        return this.cursor >= this.jobs.size();
+    }
+
+    /**
+     * Run the next job of this batch
+     */
+    public void runNext() {
+        Runnable job = this.jobs.get(this.cursor);
+        this.jobs.set(this.cursor, null);
+        this.cursor++;
+        job.run();
+    }
+
+    /**
+     * Run all jobs that are left and the callback
+     */
+    @Override
+    public void run() {
+        while (!this.isCancelled() && !this.isDone()) {
+            try {
+                this.runNext();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+        this.complete();
+    }
+
+    public void complete() {
+        if (!this.cancel()) {
+            return;
+        }
+        if (this.callback != null) {
+            this.callback.run();
+        }
+    }
+
+    /**
+     * @return the priority
+     */
+    public int getPriority() {
+        return priority;
+    }
+
+    /**
+     * @return the time in nanoseconds, that this batch may use per tick
+     */
+    public long getBudget() {
+        return budget;
+    }
+
+    /**
+     * @return the number of jobs that are done
+     */
+    public int getDoneJobs() {
+        return cursor;
+    }
+
+    /**
+     * @return the number of jobs
+     */
+    public int getTotalJobs() {
+        return jobs.size();
+    }
+}
@@ -0,0 +1,297 @@
+package de.minestar.craftz.tools;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import net.minecraft.server.v1_4_6.ItemStack;
+
+import org.bukkit.Material;
+import org.bukkit.craftbukkit.v1_4_6.inventory.CraftItemStack;
+
+import de.minestar.craftz.data.Loot;
+import de.minestar.craftz.data.loot.LootArchive;
+import de.minestar.craftz.data.loot.LootChest;
+import de.minestar.craftz.data.loot.LootDispenser;
+import de.minestar.craftz.data.loot.LootPool;
+import de.minestar.craftz.data.loot.LootPools;
+import de.minestar.craftz.data.loot.LootTable;
+import de.minestar.craftz.utils.AliasTable;
+import de.minestar.craftz.utils.SplitRandom;
+
+/**
+ * Simulates the lootrefills of an arena without a server. The lootspots are
+ * read from the lootarchive (or the old lootfiles) and refilled on all cores
+ * with the same tables as ingame. Nothing of the arena is changed.
+ * <p>
+ * Usage: <code>java -cp craftbukkit.jar:CraftZ.jar
+ * de.minestar.craftz.tools.LootSimulator &lt;arenafolder&gt; [refills]
+ * [threads] [seed]</code>
+ */
+public class LootSimulator {
+
+    // more tasks than threads, so a slow thread does not hold up the rest
+    private static final int TASKS_PER_THREAD = 4;
+
+    private final List<Spot> spots = new ArrayList<Spot>();
+    private int chests = 0, doubleChests = 0, dispensers = 0, poolSpots = 0;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.out.println("Usage: LootSimulator <arenafolder> [refills] [threads] [seed]");
+            return;
+        }
+
+        File arenaFolder = new File(args[0]);
+        int refills = (args.length > 1) ? Integer.valueOf(args[1]) : 100000;
+        int threads = (args.length > 2) ? Integer.valueOf(args[2]) : Runtime.getRuntime().availableProcessors();
+        long seed = (args.length > 3) ? Long.valueOf(args[3]) : System.nanoTime();
+
+        LootSimulator simulator = new LootSimulator();
+        simulator.load(arenaFolder);
+        if (simulator.spots.isEmpty()) {
+            System.out.println("No lootspots found in '" + arenaFolder + "'!");
+            return;
+        }
+        simulator.run(refills, threads, seed);
+    }
+
+    // //////////////////////////
+    //
+    // Loading
+    //
+    // //////////////////////////
+
+    private void load(File arenaFolder) throws Exception {
+        File lootFolder = new File(arenaFolder, "loot");
+        LootPools globalPools = new LootPools(new File(arenaFolder.getAbsoluteFile().getParentFile(), LootPools.FILE_NAME), null);
+        LootPools pools = new LootPools(new File(lootFolder, LootPools.FILE_NAME), globalPools);
+
+        LootArchive archive = new LootArchive(new File(lootFolder, LootArchive.FILE_NAME));
+        Collection<LootArchive.Record> records;
+        if (archive.exists()) {
+            records = archive.load();
+        } else {
+            // the old lootfiles are read, but not migrated
+            records = new ArrayList<LootArchive.Record>();
+            File[] files = lootFolder.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    if (file.getName().endsWith(".dat") && !file.getName().equals(LootPools.FILE_NAME)) {
+                        records.add(LootArchive.readLegacyFile(file));
+                    }
+                }
+            }
+        }
+
+        for (LootArchive.Record record : records) {
+            this.addSpot(record, pools);
+        }
+    }
+
+    private void addSpot(LootArchive.Record record, LootPools pools) throws Exception {
+        List<Loot> loot = new ArrayList<Loot>();
+        for (ItemStack stack : record.getItems()) {
+            if (stack != null) {
+                loot.add(Loot.of(CraftItemStack.asCraftMirror(stack)));
+            }
+        }
+
+        // the own loot overrides the pool, like ingame
+        if (loot.isEmpty() && record.getPoolName() != null) {
+            LootPool pool = pools.getPool(record.getPoolName());
+            if (pool != null) {
+                loot = pool.getLoot();
+                this.poolSpots++;
+            }
+        }
+
+        if (record.getTypeID() == Material.DISPENSER.getId()) {
+            this.spots.add(new Spot(loot, LootDispenser.AMOUNT_TABLE, 1, 9));
+            this.dispensers++;
+        } else if (record.hasPartner()) {
+            // as much loot as two single chests, like LootDoubleChest
+            this.spots.add(new Spot(loot, LootChest.AMOUNT_TABLE, 2, 54));
+            this.doubleChests++;
+        } else {
+            this.spots.add(new Spot(loot, LootChest.AMOUNT_TABLE, 1, 27));
+            this.chests++;
+        }
+    }
+
+    // //////////////////////////
+    //
+    // Simulation
+    //
+    // //////////////////////////
+
+    private void run(int refills, int threads, long seed) throws Exception {
+        int taskCount = Math.max(1, Math.min(refills, threads * TASKS_PER_THREAD));
+        SplitRandom random = new SplitRandom(seed);
+        List<SimulationTask> tasks = new ArrayList<SimulationTask>(taskCount);
+        for (int i = 0; i < taskCount; i++) {
+            int taskRefills = refills / taskCount + ((i < refills % taskCount) ? 1 : 0);
+            tasks.add(new SimulationTask(this.spots, taskRefills, random.split()));
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        Result total = new Result();
+        long start, duration;
+        try {
+            start = System.nanoTime();
+            List<Future<Result>> results = pool.invokeAll(tasks);
+            for (Future<Result> result : results) {
+                total.add(result.get());
+            }
+            duration = System.nanoTime() - start;
+        } finally {
+            pool.shutdown();
+        }
+
+        this.printResult(total, refills, threads, seed, duration);
+    }
+
+    private void printResult(Result result, int refills, int threads, long seed, long duration) {
+        System.out.println("Lootspots: " + this.spots.size() + " (" + this.chests + " chests, " + this.doubleChests + " doublechests, " + this.dispensers + " dispensers, " + this.poolSpots + " using a lootpool)");
+        System.out.println("Refills: " + refills + " of the arena, " + result.fills + " fills on " + threads + " threads (seed " + seed + ")");
+        System.out.println(String.format("Time: %.1f ms, %.0f fills/second", duration / 1000000.0d, result.fills * 1000000000.0d / Math.max(duration, 1)));
+        System.out.println(String.format("Empty lootspots: %.3f%%", percent(result.amounts[0], result.fills)));
+        System.out.println(String.format("Items per lootspot: %.3f", result.items / (double) result.fills));
+
+        System.out.println("Amounts:");
+        for (int amount = 0; amount < result.amounts.length; amount++) {
+            if (result.amounts[amount] > 0) {
+                System.out.println(String.format("  %2d: %7.3f%%", amount, percent(result.amounts[amount], result.fills)));
+            }
+        }
+
+        // the most frequent items first
+        List<Map.Entry<Loot, long[]>> items = new ArrayList<Map.Entry<Loot, long[]>>(result.counts.entrySet());
+        Collections.sort(items, new Comparator<Map.Entry<Loot, long[]>>() {
+            @Override
+            public int compare(Map.Entry<Loot, long[]> a, Map.Entry<Loot, long[]> b) {
+                return (a.getValue()[0] < b.getValue()[0]) ? 1 : ((a.getValue()[0] > b.getValue()[0]) ? -1 : 0);
+            }
+        });
+        System.out.println("Items (per refill of the arena, share of all items):");
+        for (Map.Entry<Loot, long[]> entry : items) {
+            Loot loot = entry.getKey();
+            long count = entry.getValue()[0];
+            System.out.println(String.format("  %4d:%-3d x%-3d %10.3f %7.3f%%", loot.getTypeID(), loot.getSubID(), loot.getAmount(), count / (double) refills, percent(count, result.items)));
+        }
+    }
+
+    private static double percent(long value, long total) {
+        return (total > 0) ? value * 100.0d / total : 0;
+    }
+
+    /**
+     * A lootspot, reduced to what the refill needs
+     */
+    private static class Spot {
+        private final List<Loot> loot;
+        private final AliasTable amountTable;
+        private final int amountDraws;
+        private final int inventorySize;
+
+        private Spot(List<Loot> loot, AliasTable amountTable, int amountDraws, int inventorySize) {
+            this.loot = loot;
+            this.amountTable = amountTable;
+            this.amountDraws = amountDraws;
+            this.inventorySize = inventorySize;
+        }
+
+        private int sampleAmount(SplitRandom random) {
+            int amount = 0;
+            for (int i = 0; i < this.amountDraws; i++) {
+                amount += this.amountTable.sample(random) + 1;
+            }
+            return Math.min(amount, this.inventorySize);
+        }
+    }
+
+    /**
+     * The counters of one or more tasks
+     */
+    private static class Result {
+        private long fills = 0;
+        private long items = 0;
+        private final long[] amounts = new long[55];
+        private final HashMap<Loot, long[]> counts = new HashMap<Loot, long[]>();
+
+        private void count(Loot loot) {
+            long[] count = this.counts.get(loot);
+            if (count == null) {
+                count = new long[1];
+                this.counts.put(loot, count);
+            }
+            count[0]++;
+        }
+
+        private void add(Result other) {
+            this.fills += other.fills;
+            this.items += other.items;
+            for (int i = 0; i < this.amounts.length; i++) {
+                this.amounts[i] += other.amounts[i];
+            }
+            for (Map.Entry<Loot, long[]> entry : other.counts.entrySet()) {
+                long[] count = this.counts.get(entry.getKey());
+                if (count == null) {
+                    this.counts.put(entry.getKey(), entry.getValue());
+                } else {
+                    count[0] += entry.getValue()[0];
+                }
+            }
+        }
+    }
+
+    /**
+     * Refills every lootspot a number of times. Every task has its own
+     * random and its own loottables, as both are not threadsafe.
+     */
+    private static class SimulationTask implements Callable<Result> {
+        private final List<Spot> spots;
+        private final int refills;
+        private final SplitRandom random;
+
+        private SimulationTask(List<Spot> spots, int refills, SplitRandom random) {
+            this.spots = spots;
+            this.refills = refills;
+            this.random = random;
+        }
+
+        @Override
+        public Result call() {
+            LootTable[] tables = new LootTable[this.spots.size()];
+            for (int i = 0; i < tables.length; i++) {
+                tables[i] = new LootTable(this.spots.get(i).loot);
+            }
+
+            Result result = new Result();
+            Loot[] drawnLoot = new Loot[54];
+            for (int refill = 0; refill < this.refills; refill++) {
+                for (int i = 0; i < tables.length; i++) {
+                    Spot spot = this.spots.get(i);
+                    int amount = tables[i].sample(this.random, spot.sampleAmount(this.random), drawnLoot);
+                    result.fills++;
+                    result.items += amount;
+                    result.amounts[amount]++;
+                    for (int j = 0; j < amount; j++) {
+                        result.count(drawnLoot[j]);
+                        drawnLoot[j] = null;
+                    }
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package de.minestar.craftz.utils;
+
+/**
+ * A discrete distribution compiled with Vose's alias method. Building the
+ * table is O(n), every sample is O(1): one random column and one coinflip.
+ */
+public class AliasTable {
+
+    private final double[] probability;
+    private final int[] alias;
+
+    /**
+     * @param weights
+     *            the weights, at least one of them has to be positive
+     */
+    public AliasTable(double[] weights) {
+        int size = weights.length;
+        this.probability = new double[size];
+        this.alias = new int[size];
+
+        double total = 0;
+        for (double weight : weights) {
+            total += Math.max(weight, 0);
+        }
+        if (size == 0 || total <= 0) {
+            throw new IllegalArgumentException("No positive weight!");
+        }
+
+        // scale the weights, so the average is 1
+        double[] scaled = new double[size];
+        int[] small = new int[size];
+        int[] large = new int[size];
+        int smallCount = 0, largeCount = 0;
+        for (int i = 0; i < size; i++) {
+            scaled[i] = Math.max(weights[i], 0) * size / total;
+            if (scaled[i] < 1.0d) {
+                small[smallCount++] = i;
+            } else {
+                large[largeCount++] = i;
+            }
+        }
+
+        // fill every small column with a part of a large one
+        while (smallCount > 0 && largeCount > 0) {
+            int less = small[--smallCount];
+            int more = large[--largeCount];
+            this.probability[less] = scaled[less];
+            this.alias[less] = more;
+            scaled[more] = (scaled[more] + scaled[less]) - 1.0d;
+            if (scaled[more] < 1.0d) {
+                small[smallCount++] = more;
+            } else {
+                large[largeCount++] = more;
+            }
+        }
+
+        // the rest is full, apart from rounding errors
+        while (largeCount > 0) {
+            this.probability[large[--largeCount]] = 1.0d;
+        }
+        while (smallCount > 0) {
+            this.probability[small[--smallCount]] = 1.0d;
+        }
+    }
+
+    public int sample(SplitRandom random) {
+        int column = random.nextInt(this.probability.length);
+        return random.nextDouble() < this.probability[column] ? column : this.alias[column];
+    }
+
+    public int size() {
+        return probability.length;
+    }
+}
@@ -0,0 +1,139 @@
+package de.minestar.craftz.utils;
+
+import java.util.Arrays;
+
+/**
+ * The original type and data of changed blocks, keyed by
+ * {@link BlockKeys#journalKey(int, int, int, int)}. Like the
+ * {@link LongHashMap} it uses open addressing with linear probing, but the
+ * values are packed into an int, so recording a block allocates nothing once
+ * the table is large enough.
+ */
+public class BlockJournal {
+
+    private static final float LOAD_FACTOR = 0.5f;
+
+    // marks an empty slot, a packed block is never negative
+    private static final int EMPTY = -1;
+
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size = 0;
+    private int resizeAt;
+
+    public BlockJournal() {
+        this(64);
+    }
+
+    public BlockJournal(int expectedSize) {
+        int capacity = 16;
+        while (capacity * LOAD_FACTOR < expectedSize) {
+            capacity <<= 1;
+        }
+        this.allocate(capacity);
+    }
+
+    private void allocate(int capacity) {
+        this.keys = new long[capacity];
+        this.values = new int[capacity];
+        Arrays.fill(this.values, EMPTY);
+        this.mask = capacity - 1;
+        this.resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    public boolean contains(long key) {
+        return this.values[this.indexOf(key)] != EMPTY;
+    }
+
+    /**
+     * Record a block, unless it is already recorded. The first state of a
+     * block wins.
+     *
+     * @return <b>true</b> if the block was not recorded yet
+     */
+    public boolean add(long key, int typeID, byte subID) {
+        int index = this.indexOf(key);
+        if (this.values[index] != EMPTY) {
+            return false;
+        }
+
+        this.keys[index] = key;
+        this.values[index] = (typeID << 8) | (subID & 0xFF);
+        if (++this.size > this.resizeAt) {
+            this.resize();
+        }
+        return true;
+    }
+
+    /**
+     * @return the packed type and data of the block, or -1 if it is not
+     *         recorded
+     */
+    public int get(long key) {
+        return this.values[this.indexOf(key)];
+    }
+
+    public static int getTypeID(int block) {
+        return block >>> 8;
+    }
+
+    public static byte getSubID(int block) {
+        return (byte) block;
+    }
+
+    /**
+     * @return the slot of the key, or the empty slot it would be put into
+     */
+    private int indexOf(long key) {
+        int index = LongHashMap.hash(key) & this.mask;
+        while (this.values[index] != EMPTY && this.keys[index] != key) {
+            index = (index + 1) & this.mask;
+        }
+        return index;
+    }
+
+    private void resize() {
+        long[] oldKeys = this.keys;
+        int[] oldValues = this.values;
+        this.allocate(oldKeys.length << 1);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != EMPTY) {
+                int index = this.indexOf(oldKeys[i]);
+                this.keys[index] = oldKeys[i];
+                this.values[index] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * @return all keys, sorted so the blocks of a chunk follow each other
+     */
+    public long[] getKeysInChunkOrder() {
+        long[] result = new long[this.size];
+        int count = 0;
+        for (int i = 0; i < this.keys.length; i++) {
+            if (this.values[i] != EMPTY) {
+                result[count++] = this.keys[i];
+            }
+        }
+        Arrays.sort(result);
+        return result;
+    }
+
+    /**
+     * Forget all blocks, but keep the table for the next match
+     */
+    public void clear() {
+        Arrays.fill(this.values, EMPTY);
+        this.size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+}
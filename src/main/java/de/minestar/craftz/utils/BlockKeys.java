@@ -0,0 +1,135 @@
+package de.minestar.craftz.utils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import org.bukkit.Chunk;
+import org.bukkit.Location;
+import org.bukkit.World;
+
+/**
+ * Packs block- and chunkpositions into a single long, so they can be used as
+ * keys of a {@link LongHashMap}.
+ * <p>
+ * Blockkey: 8 bits world | 24 bits x | 24 bits z | 8 bits y <br>
+ * Chunkkey: 8 bits world | 28 bits chunkX | 28 bits chunkZ <br>
+ * Journalkey: 8 bits world | 20 bits chunkX | 20 bits chunkZ | 4 bits x | 4
+ * bits z | 8 bits y, so sorted keys are grouped by chunk
+ */
+public class BlockKeys {
+
+    private static final long MASK_4 = 0xFL;
+    private static final long MASK_8 = 0xFFL;
+    private static final long MASK_20 = 0xFFFFFL;
+    private static final long MASK_24 = 0xFFFFFFL;
+    private static final long MASK_28 = 0xFFFFFFFL;
+
+    private static final HashMap<String, Integer> worldIDs = new HashMap<String, Integer>();
+    private static final ArrayList<String> worldNames = new ArrayList<String>();
+
+    /**
+     * Get the ID of a world. Worldnames are compared case-insensitive, like
+     * {@link LocationUtils#equals(Location, Location)} does. Threadsafe, the
+     * lootarchives are read by the loaderthreads.
+     *
+     * @param worldName
+     * @return the ID of the world
+     */
+    public static synchronized int getWorldID(String worldName) {
+        String name = worldName.toLowerCase();
+        Integer worldID = worldIDs.get(name);
+        if (worldID == null) {
+            if (worldIDs.size() > MASK_8) {
+                throw new IllegalStateException("Too many worlds for the blockkeys!");
+            }
+            worldID = worldIDs.size();
+            worldIDs.put(name, worldID);
+            worldNames.add(name);
+        }
+        return worldID;
+    }
+
+    /**
+     * @param worldID
+     * @return the name of the world in lower case, or <code>null</code>
+     */
+    public static synchronized String getWorldName(int worldID) {
+        if (worldID < 0 || worldID >= worldNames.size()) {
+            return null;
+        }
+        return worldNames.get(worldID);
+    }
+
+    public static int getWorldID(World world) {
+        return getWorldID(world.getName());
+    }
+
+    public static long blockKey(int worldID, int x, int y, int z) {
+        return ((worldID & MASK_8) << 56) | ((x & MASK_24) << 32) | ((z & MASK_24) << 8) | (y & MASK_8);
+    }
+
+    public static long blockKey(Location location) {
+        return blockKey(getWorldID(location.getWorld()), location.getBlockX(), location.getBlockY(), location.getBlockZ());
+    }
+
+    public static long chunkKey(int worldID, int chunkX, int chunkZ) {
+        return ((worldID & MASK_8) << 56) | ((chunkX & MASK_28) << 28) | (chunkZ & MASK_28);
+    }
+
+    public static long chunkKey(Location location) {
+        return chunkKey(getWorldID(location.getWorld()), location.getBlockX() >> 4, location.getBlockZ() >> 4);
+    }
+
+    public static long chunkKey(Chunk chunk) {
+        return chunkKey(getWorldID(chunk.getWorld()), chunk.getX(), chunk.getZ());
+    }
+
+    public static int getChunkX(long chunkKey) {
+        return (int) (chunkKey << 8 >> 36);
+    }
+
+    public static int getChunkZ(long chunkKey) {
+        return (int) (chunkKey << 36 >> 36);
+    }
+
+    public static long journalKey(int worldID, int x, int y, int z) {
+        return ((worldID & MASK_8) << 56) | (((x >> 4) & MASK_20) << 36) | (((z >> 4) & MASK_20) << 16) | ((x & MASK_4) << 12) | ((z & MASK_4) << 8) | (y & MASK_8);
+    }
+
+    /**
+     * @return the part of the journalkey, that is the same for all blocks of
+     *         a chunk
+     */
+    public static long getJournalChunk(long journalKey) {
+        return journalKey >>> 16;
+    }
+
+    public static int getJournalX(long journalKey) {
+        return ((int) (journalKey << 8 >> 44) << 4) | (int) ((journalKey >> 12) & MASK_4);
+    }
+
+    public static int getJournalY(long journalKey) {
+        return (int) (journalKey & MASK_8);
+    }
+
+    public static int getJournalZ(long journalKey) {
+        return ((int) (journalKey << 28 >> 44) << 4) | (int) ((journalKey >> 8) & MASK_4);
+    }
+
+    public static int getX(long blockKey) {
+        // shift up and down again to restore the sign
+        return (int) (blockKey << 8 >> 40);
+    }
+
+    public static int getY(long blockKey) {
+        return (int) (blockKey & MASK_8);
+    }
+
+    public static int getZ(long blockKey) {
+        return (int) (blockKey << 32 >> 40);
+    }
+
+    public static int getWorldID(long key) {
+        return (int) (key >>> 56);
+    }
+}
@@ -0,0 +1,121 @@
+package de.minestar.craftz.utils;
+
+import net.minecraft.server.v1_4_6.Block;
+import net.minecraft.server.v1_4_6.BlockContainer;
+import net.minecraft.server.v1_4_6.Chunk;
+import net.minecraft.server.v1_4_6.ChunkSection;
+
+import org.bukkit.World;
+import org.bukkit.craftbukkit.v1_4_6.CraftChunk;
+
+/**
+ * Writes many blocks of one chunk at once. The blocks are written straight
+ * into the chunksections: no physics, no lightupdate and no packet per block.
+ * Afterwards the skylight of the chunk is calculated once and the whole chunk
+ * is sent to the players again.
+ * <p>
+ * Blocks with a tileentity or a light of their own (before or after) are
+ * still written through Bukkit, as they need the work the world does for
+ * them. So are blocks that change their opacity next to blocklight (of a torch
+ * or glowstone nearby), because the blocklight has to be spread again.
+ */
+public class ChunkWriter {
+
+    // the block itself and its six neighbours
+    private static final int[][] NEIGHBOURS = { {0, 0, 0}, {1, 0, 0}, {-1, 0, 0}, {0, 1, 0}, {0, -1, 0}, {0, 0, 1}, {0, 0, -1}};
+
+    /**
+     * The position of a block inside of its chunk
+     */
+    public static int getPosition(int x, int y, int z) {
+        return (y << 8) | ((z & 0xF) << 4) | (x & 0xF);
+    }
+
+    /**
+     * Write the blocks of a chunk. The chunk is loaded if needed.
+     *
+     * @param positions
+     *            the positions in the chunk, see
+     *            {@link #getPosition(int, int, int)}
+     * @param blocks
+     *            the blocks as (typeID << 4 | data)
+     * @param count
+     *            the number of blocks
+     * @return the number of blocks, that were different
+     */
+    public static int writeBlocks(World world, int chunkX, int chunkZ, int[] positions, int[] blocks, int count) {
+        org.bukkit.Chunk bukkitChunk = world.getChunkAt(chunkX, chunkZ);
+        Chunk chunk = ((CraftChunk) bukkitChunk).getHandle();
+        ChunkSection[] sections = chunk.i();
+
+        int changed = 0;
+        boolean direct = false;
+        for (int i = 0; i < count; i++) {
+            int x = positions[i] & 0xF;
+            int z = (positions[i] >> 4) & 0xF;
+            int y = positions[i] >> 8;
+            int typeID = blocks[i] >> 4;
+            int data = blocks[i] & 0xF;
+
+            ChunkSection section = sections[y >> 4];
+            int oldTypeID = (section != null) ? section.a(x, y & 0xF, z) : 0;
+            int oldData = (section != null) ? section.b(x, y & 0xF, z) : 0;
+            if (oldTypeID == typeID && oldData == data) {
+                continue;
+            }
+            changed++;
+
+            // a new section or a special block is left to the world
+            if ((section == null && typeID != 0) || isSpecial(oldTypeID) || isSpecial(typeID) || (Block.lightBlock[oldTypeID] != Block.lightBlock[typeID] && isNearBlockLight(world, (chunkX << 4) + x, y, (chunkZ << 4) + z))) {
+                bukkitChunk.getBlock(x, y, z).setTypeIdAndData(typeID, (byte) data, false);
+                continue;
+            }
+            if (section == null) {
+                // air in a section full of air
+                continue;
+            }
+            section.a(x, y & 0xF, z, typeID);
+            section.b(x, y & 0xF, z, data);
+            direct = true;
+        }
+
+        if (direct) {
+            // one lightupdate and one packet for the whole chunk
+            chunk.initLighting();
+
+            // mark the chunk as modified, so it is saved
+            chunk.l = true;
+            world.refreshChunk(chunkX, chunkZ);
+        }
+        return changed;
+    }
+
+    /**
+     * @return <b>true</b> if the block or one of its neighbours is lit by a
+     *         blocklight
+     */
+    private static boolean isNearBlockLight(World world, int x, int y, int z) {
+        for (int[] offset : NEIGHBOURS) {
+            int blockX = x + offset[0];
+            int blockY = y + offset[1];
+            int blockZ = z + offset[2];
+            if (blockY < 0 || blockY >= world.getMaxHeight() || !world.isChunkLoaded(blockX >> 4, blockZ >> 4)) {
+                continue;
+            }
+            if (world.getBlockAt(blockX, blockY, blockZ).getLightFromBlocks() > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return <b>true</b> if the block has a tileentity or emits light
+     */
+    private static boolean isSpecial(int typeID) {
+        if (typeID == 0) {
+            return false;
+        }
+        return Block.byId[typeID] instanceof BlockContainer || Block.lightEmission[typeID] > 0;
+    }
+}
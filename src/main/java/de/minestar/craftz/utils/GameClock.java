@@ -0,0 +1,14 @@
+package de.minestar.craftz.utils;
+
+/**
+ * The source of time for the {@link de.minestar.craftz.manager.TickScheduler}.
+ * The server uses the {@link WallClock}, simulations can use a
+ * {@link ManualClock} to fast-forward whole matches.
+ */
+public interface GameClock {
+
+    /**
+     * @return the current time in milliseconds
+     */
+    public long currentTimeMillis();
+}
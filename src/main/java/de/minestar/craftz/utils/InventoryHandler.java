@@ -1,44 +1,47 @@
 package de.minestar.craftz.utils;
 
-import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
+import java.io.IOException;
 
 import net.minecraft.server.v1_4_6.ItemStack;
 import net.minecraft.server.v1_4_6.NBTTagCompound;
 import net.minecraft.server.v1_4_6.NBTTagList;
 
 import org.bukkit.Material;
-import org.bukkit.craftbukkit.v1_4_6.inventory.CraftInventory;
 
 public class InventoryHandler {
 
-    public static void saveInventory(File file, CraftInventory inventory) {
-        try {
-            if (file.exists()) {
-                file.delete();
-            }
-
-            NBTTagCompound compound = new NBTTagCompound();
-            NBTTagList stackTagList = new NBTTagList();
-
-            ItemStack[] contents = inventory.getInventory().getContents();
-            for (ItemStack stack : contents) {
-                if (stack == null || stack.id == Material.AIR.getId()) {
-                    continue;
-                }
-                NBTTagCompound itemCompound = new NBTTagCompound();
-                stack.save(itemCompound);
-                stackTagList.add(itemCompound);
+    /**
+     * @return the items as uncompressed NBT
+     */
+    public static byte[] encodeItems(ItemStack[] contents) throws IOException {
+        NBTTagCompound compound = new NBTTagCompound();
+        NBTTagList stackTagList = new NBTTagList();
+        for (ItemStack stack : contents) {
+            if (stack == null || stack.id == Material.AIR.getId()) {
+                continue;
             }
-            compound.set("Items", stackTagList);
-            BufferedOutputStream stream = new BufferedOutputStream(new FileOutputStream(file));
-            CompressedStreamTools.writeGzippedCompoundToOutputStream(compound, stream);
-            stream.close();
-        } catch (Exception e) {
-            e.printStackTrace();
+            NBTTagCompound itemCompound = new NBTTagCompound();
+            stack.save(itemCompound);
+            stackTagList.add(itemCompound);
         }
+        compound.set("Items", stackTagList);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream stream = new DataOutputStream(bytes);
+        CompressedStreamTools.writeTo(compound, stream);
+        stream.close();
+        return bytes.toByteArray();
+    }
+
+    public static ItemStack[] decodeItems(byte[] data, int offset, int length) throws IOException {
+        NBTTagCompound tagCompound = CompressedStreamTools.read(new DataInputStream(new ByteArrayInputStream(data, offset, length)));
+        return readItems(tagCompound);
     }
 
     public static ItemStack[] loadInventory(File file) {
@@ -47,17 +50,20 @@ public class InventoryHandler {
                 return new ItemStack[0];
             }
             NBTTagCompound tagCompound = CompressedStreamTools.loadGzippedCompoundFromOutputStream(new FileInputStream(file));
-
-            NBTTagList itemList = tagCompound.getList("Items");
-            ItemStack[] items = new ItemStack[itemList.size()];
-            for (int i = 0; i < itemList.size(); i++) {
-                NBTTagCompound nbttagcompound1 = (NBTTagCompound) itemList.get(i);
-                items[i] = ItemStack.a(nbttagcompound1);
-            }
-            return items;
+            return readItems(tagCompound);
         } catch (Exception e) {
             e.printStackTrace();
             return new ItemStack[0];
         }
     }
+
+    private static ItemStack[] readItems(NBTTagCompound tagCompound) {
+        NBTTagList itemList = tagCompound.getList("Items");
+        ItemStack[] items = new ItemStack[itemList.size()];
+        for (int i = 0; i < itemList.size(); i++) {
+            NBTTagCompound nbttagcompound1 = (NBTTagCompound) itemList.get(i);
+            items[i] = ItemStack.a(nbttagcompound1);
+        }
+        return items;
+    }
 }
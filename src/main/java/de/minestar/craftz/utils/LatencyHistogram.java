@@ -0,0 +1,70 @@
+package de.minestar.craftz.utils;
+
+/**
+ * A cheap histogram with one bucket per power of two. Recording a value is one
+ * array increment, so it can be used for every single task.
+ */
+public class LatencyHistogram {
+
+    private final long[] buckets = new long[64];
+    private long count = 0;
+    private long sum = 0;
+    private long max = 0;
+
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        this.buckets[64 - Long.numberOfLeadingZeros(value)]++;
+        this.count++;
+        this.sum += value;
+        if (value > this.max) {
+            this.max = value;
+        }
+    }
+
+    /**
+     * Get the upper bound of the bucket, that contains the given percentile
+     *
+     * @param percentile
+     *            between 0 and 1
+     * @return the value
+     */
+    public long getPercentile(double percentile) {
+        if (this.count == 0) {
+            return 0;
+        }
+
+        long needed = (long) Math.ceil(percentile * this.count);
+        long seen = 0;
+        for (int index = 0; index < this.buckets.length; index++) {
+            seen += this.buckets[index];
+            if (seen >= needed) {
+                long upperBound = index == 0 ? 0 : (1L << index) - 1;
+                return Math.min(upperBound, this.max);
+            }
+        }
+        return this.max;
+    }
+
+    public void reset() {
+        for (int index = 0; index < this.buckets.length; index++) {
+            this.buckets[index] = 0;
+        }
+        this.count = 0;
+        this.sum = 0;
+        this.max = 0;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getAverage() {
+        return this.count == 0 ? 0 : this.sum / this.count;
+    }
+
+    public long getMax() {
+        return max;
+    }
+}
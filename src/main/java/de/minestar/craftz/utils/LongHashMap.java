@@ -0,0 +1,176 @@
+package de.minestar.craftz.utils;
+
+import java.util.Arrays;
+
+/**
+ * A hashmap with primitive long keys. It uses open addressing with linear
+ * probing, so a lookup neither boxes the key nor follows any references.
+ * <code>null</code> values are not allowed, they mark empty slots.
+ *
+ * @param <V>
+ *            the type of the values
+ */
+public class LongHashMap<V> {
+
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private long[] keys;
+    private Object[] values;
+    private int mask;
+    private int size = 0;
+    private int resizeAt;
+
+    public LongHashMap() {
+        this(16);
+    }
+
+    public LongHashMap(int expectedSize) {
+        int capacity = 16;
+        while (capacity * LOAD_FACTOR < expectedSize) {
+            capacity <<= 1;
+        }
+        this.allocate(capacity);
+    }
+
+    private void allocate(int capacity) {
+        this.keys = new long[capacity];
+        this.values = new Object[capacity];
+        this.mask = capacity - 1;
+        this.resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    /**
+     * Spread the bits of the key, block coordinates are anything but random
+     */
+    static int hash(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        int index = hash(key) & this.mask;
+        Object value;
+        while ((value = this.values[index]) != null) {
+            if (this.keys[index] == key) {
+                return (V) value;
+            }
+            index = (index + 1) & this.mask;
+        }
+        return null;
+    }
+
+    public boolean containsKey(long key) {
+        return this.get(key) != null;
+    }
+
+    /**
+     * @return the previous value of the key, or <code>null</code>
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("null values are not allowed!");
+        }
+
+        int index = hash(key) & this.mask;
+        Object old;
+        while ((old = this.values[index]) != null) {
+            if (this.keys[index] == key) {
+                this.values[index] = value;
+                return (V) old;
+            }
+            index = (index + 1) & this.mask;
+        }
+
+        this.keys[index] = key;
+        this.values[index] = value;
+        if (++this.size > this.resizeAt) {
+            this.resize();
+        }
+        return null;
+    }
+
+    /**
+     * @return the removed value, or <code>null</code>
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        int index = hash(key) & this.mask;
+        Object value;
+        while ((value = this.values[index]) != null) {
+            if (this.keys[index] == key) {
+                this.values[index] = null;
+                this.size--;
+                this.closeGap(index);
+                return (V) value;
+            }
+            index = (index + 1) & this.mask;
+        }
+        return null;
+    }
+
+    /**
+     * Move the following entries of the probe chain into the free slot, so
+     * lookups never stop at a hole.
+     */
+    private void closeGap(int free) {
+        int index = (free + 1) & this.mask;
+        while (this.values[index] != null) {
+            int home = hash(this.keys[index]) & this.mask;
+            // move the entry, if its home is not between the gap and its slot
+            if (((index - home) & this.mask) >= ((index - free) & this.mask)) {
+                this.keys[free] = this.keys[index];
+                this.values[free] = this.values[index];
+                this.values[index] = null;
+                free = index;
+            }
+            index = (index + 1) & this.mask;
+        }
+    }
+
+    private void resize() {
+        long[] oldKeys = this.keys;
+        Object[] oldValues = this.values;
+        this.allocate(oldKeys.length << 1);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != null) {
+                int index = hash(oldKeys[i]) & this.mask;
+                while (this.values[index] != null) {
+                    index = (index + 1) & this.mask;
+                }
+                this.keys[index] = oldKeys[i];
+                this.values[index] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * @return all keys, in no particular order
+     */
+    public long[] keys() {
+        long[] result = new long[this.size];
+        int count = 0;
+        for (int i = 0; i < this.keys.length; i++) {
+            if (this.values[i] != null) {
+                result[count++] = this.keys[i];
+            }
+        }
+        return result;
+    }
+
+    public void clear() {
+        Arrays.fill(this.values, null);
+        this.size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+}
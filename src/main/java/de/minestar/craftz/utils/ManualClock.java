@@ -0,0 +1,30 @@
+package de.minestar.craftz.utils;
+
+/**
+ * A clock that only moves, when it is told to.
+ */
+public class ManualClock implements GameClock {
+
+    private long time;
+
+    public ManualClock() {
+        this(0);
+    }
+
+    public ManualClock(long time) {
+        this.time = time;
+    }
+
+    public void advance(long millis) {
+        this.time += millis;
+    }
+
+    public void setTime(long time) {
+        this.time = time;
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return time;
+    }
+}
@@ -0,0 +1,20 @@
+package de.minestar.craftz.utils;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+public class PoolUtils {
+
+    /**
+     * Run a task in the pool, or right here if the pool does not take it
+     * anymore. Whoever waits for the task is never left waiting.
+     */
+    public static void execute(Executor pool, Runnable task) {
+        try {
+            pool.execute(task);
+        } catch (RejectedExecutionException e) {
+            // the server is stopping
+            task.run();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package de.minestar.craftz.utils;
+
+/**
+ * A small and fast random generator (SplitMix64). It is not threadsafe, every
+ * game uses its own instance on the mainthread. New independent generators can
+ * be split off with {@link #split()}.
+ */
+public class SplitRandom {
+
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+    private static final double DOUBLE_UNIT = 1.0d / (1L << 53);
+
+    private long seed;
+
+    public SplitRandom() {
+        this(System.nanoTime() ^ System.currentTimeMillis());
+    }
+
+    public SplitRandom(long seed) {
+        this.seed = seed;
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    public long nextLong() {
+        this.seed += GOLDEN_GAMMA;
+        return mix(this.seed);
+    }
+
+    public int nextInt() {
+        return (int) (this.nextLong() >>> 32);
+    }
+
+    /**
+     * @param bound
+     *            the upper bound (exclusive), must be positive
+     * @return a random value between 0 and bound
+     */
+    public int nextInt(int bound) {
+        // multiply instead of modulo, the bias is negligible for our bounds
+        return (int) (((this.nextLong() >>> 32) * bound) >>> 32);
+    }
+
+    /**
+     * @return a random value between 0.0 (inclusive) and 1.0 (exclusive)
+     */
+    public double nextDouble() {
+        return (this.nextLong() >>> 11) * DOUBLE_UNIT;
+    }
+
+    /**
+     * @return a new generator, that is independent of this one
+     */
+    public SplitRandom split() {
+        return new SplitRandom(this.nextLong());
+    }
+}
@@ -0,0 +1,9 @@
+package de.minestar.craftz.utils;
+
+public class WallClock implements GameClock {
+
+    @Override
+    public long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+}
@@ -0,0 +1,229 @@
+package de.minestar.craftz.manager;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import de.minestar.craftz.data.GameState;
+import de.minestar.craftz.threads.GameTask;
+import de.minestar.craftz.threads.WorkBatch;
+import de.minestar.craftz.utils.ManualClock;
+import de.minestar.craftz.utils.SplitRandom;
+
+/**
+ * Runs complete matches against a {@link ManualClock}, so hundreds of matches
+ * take a few seconds. The matches follow the phases of the
+ * {@link de.minestar.craftz.data.SurvivalGame}: every phase schedules the task
+ * for the next one, the tasks check the phase they belong to and the lobby
+ * cancels everything that is left.
+ */
+public class MatchLifecycleTest {
+
+    // the default timings of the GameSettings, in seconds
+    private static final int PRE_GAME_TIME = 30;
+    private static final int PRE_PVP_TIME = 2 * 60;
+    private static final int PRE_DEATHMATCH_TIME = 28 * 60;
+    private static final int AFTER_MATCH_TIME = 2 * 60;
+
+    private static final int MATCHES = 500;
+
+    private ManualClock clock;
+    private TickScheduler tickScheduler;
+    private WorkExecutor workExecutor;
+    private Scheduler scheduler;
+
+    @Before
+    public void setUp() {
+        this.clock = new ManualClock();
+        this.tickScheduler = new TickScheduler(this.clock, new Mailbox(Long.MAX_VALUE));
+        CountdownManager countdownManager = new CountdownManager(this.tickScheduler);
+        countdownManager.onEnable();
+        this.workExecutor = new WorkExecutor(this.tickScheduler, 0);
+        this.workExecutor.onEnable();
+        this.scheduler = new Scheduler("test", this.tickScheduler, countdownManager, this.workExecutor);
+    }
+
+    @Test
+    public void phasesFollowEachOther() {
+        SimulatedMatch match = new SimulatedMatch(PRE_DEATHMATCH_TIME + 5 * 60);
+        this.play(match, null);
+
+        assertEquals(Arrays.asList(GameState.PRE_GAME, GameState.PRE_PVP, GameState.SURVIVAL, GameState.DEATHMATCH, GameState.END, GameState.LOBBY), match.phases);
+        assertEquals(ticks(PRE_GAME_TIME), match.getTicks(0));
+        assertEquals(ticks(PRE_PVP_TIME), match.getTicks(1));
+        assertEquals(ticks(PRE_DEATHMATCH_TIME), match.getTicks(2));
+        assertEquals(ticks(5 * 60), match.getTicks(3));
+        assertEquals(ticks(AFTER_MATCH_TIME), match.getTicks(4));
+    }
+
+    @Test
+    public void matchesKeepTheirTimingsWhileLagging() {
+        SplitRandom random = new SplitRandom(42);
+        for (int i = 0; i < MATCHES; i++) {
+            // the last player dies somewhere in the survival or the deathmatch
+            int fightTime = random.nextInt(PRE_DEATHMATCH_TIME + 10 * 60) + 1;
+            if (fightTime == PRE_DEATHMATCH_TIME) {
+                // both in the same tick, the order would be up to the wheel
+                fightTime++;
+            }
+            SimulatedMatch match = new SimulatedMatch(fightTime);
+            this.play(match, random);
+
+            String name = "match " + i + " (" + fightTime + "s)";
+            assertEquals(name, ticks(PRE_GAME_TIME), match.getTicks(0));
+            assertEquals(name, ticks(PRE_PVP_TIME), match.getTicks(1));
+            if (fightTime < PRE_DEATHMATCH_TIME) {
+                assertEquals(name, Arrays.asList(GameState.PRE_GAME, GameState.PRE_PVP, GameState.SURVIVAL, GameState.END, GameState.LOBBY), match.phases);
+                assertEquals(name, ticks(fightTime), match.getTicks(2));
+            } else {
+                assertEquals(name, Arrays.asList(GameState.PRE_GAME, GameState.PRE_PVP, GameState.SURVIVAL, GameState.DEATHMATCH, GameState.END, GameState.LOBBY), match.phases);
+                assertEquals(name, ticks(PRE_DEATHMATCH_TIME), match.getTicks(2));
+                assertEquals(name, ticks(fightTime - PRE_DEATHMATCH_TIME), match.getTicks(3));
+            }
+            assertEquals(name, ticks(AFTER_MATCH_TIME), match.getTicks(match.phases.size() - 2));
+        }
+    }
+
+    @Test
+    public void tasksOfAnEarlyEndDoNotReachTheNextMatch() {
+        // everyone dies before the deathmatch, the next match starts right away
+        SimulatedMatch first = new SimulatedMatch(60);
+        this.play(first, null);
+        SimulatedMatch second = new SimulatedMatch(PRE_DEATHMATCH_TIME + 60);
+        this.play(second, null);
+
+        assertEquals(Arrays.asList(GameState.PRE_GAME, GameState.PRE_PVP, GameState.SURVIVAL, GameState.DEATHMATCH, GameState.END, GameState.LOBBY), second.phases);
+        assertEquals(ticks(PRE_DEATHMATCH_TIME), second.getTicks(2));
+    }
+
+    @Test
+    public void workRunsOncePerServerTickAfterLag() {
+        final int[] doneJobs = {0};
+        WorkBatch batch = new WorkBatch(WorkBatch.PRIORITY_NORMAL);
+        for (int i = 0; i < 100; i++) {
+            batch.addJob(new Runnable() {
+                @Override
+                public void run() {
+                    doneJobs[0]++;
+                }
+            });
+        }
+        this.workExecutor.submit(batch);
+
+        // without any budget, one job is run per servertick, even after two seconds of lag
+        this.serverTick(2000);
+        assertEquals(1, doneJobs[0]);
+        this.serverTick(TickScheduler.MILLIS_PER_TICK);
+        assertEquals(2, doneJobs[0]);
+    }
+
+    /**
+     * Start the match and run serverticks until it is back in the lobby
+     *
+     * @param random
+     *            adds lag spikes of up to two seconds, may be <code>null</code>
+     */
+    private void play(SimulatedMatch match, SplitRandom random) {
+        match.goToPreGame();
+        while (match.state != GameState.LOBBY) {
+            if (random != null && random.nextInt(100) == 0) {
+                this.serverTick(random.nextInt(2000) + 1);
+            } else {
+                this.serverTick(TickScheduler.MILLIS_PER_TICK);
+            }
+        }
+    }
+
+    private static long ticks(int seconds) {
+        return seconds * TickScheduler.TICKS_PER_SECOND;
+    }
+
+    private void serverTick(long millis) {
+        this.clock.advance(millis);
+        this.tickScheduler.run();
+    }
+
+    // /////////////////////////////////////////////////////////
+    //
+    // The simulated game
+    //
+    // /////////////////////////////////////////////////////////
+
+    private class SimulatedMatch {
+
+        // the seconds from the start of the survival until the last player is left
+        private final int fightTime;
+
+        private GameState state = GameState.LOBBY;
+        private final List<GameState> phases = new ArrayList<GameState>();
+        private final List<Long> ticks = new ArrayList<Long>();
+
+        public SimulatedMatch(int fightTime) {
+            this.fightTime = fightTime;
+        }
+
+        public void goToPreGame() {
+            this.enter(GameState.PRE_GAME);
+            this.schedule(GameState.PRE_GAME, GameState.PRE_PVP, PRE_GAME_TIME);
+        }
+
+        private void enter(GameState state) {
+            this.state = state;
+            this.phases.add(state);
+            this.ticks.add(tickScheduler.getCurrentTick());
+
+            switch (state) {
+                case PRE_PVP :
+                    this.schedule(GameState.PRE_PVP, GameState.SURVIVAL, PRE_PVP_TIME);
+                    break;
+                case SURVIVAL :
+                    this.schedule(GameState.SURVIVAL, GameState.DEATHMATCH, PRE_DEATHMATCH_TIME);
+                    this.scheduleLastPlayer();
+                    break;
+                case END :
+                    this.schedule(GameState.END, GameState.LOBBY, AFTER_MATCH_TIME);
+                    break;
+                case LOBBY :
+                    scheduler.cancelTasks();
+                    break;
+                default :
+                    break;
+            }
+        }
+
+        private void schedule(final GameState from, final GameState to, int seconds) {
+            scheduler.scheduleDelayedTask(new GameTask() {
+                @Override
+                public void run() {
+                    // like the threads of the game, a task only works in its phase
+                    if (state == from) {
+                        enter(to);
+                    }
+                }
+            }, seconds * TickScheduler.TICKS_PER_SECOND);
+        }
+
+        private void scheduleLastPlayer() {
+            scheduler.scheduleDelayedTask(new GameTask() {
+                @Override
+                public void run() {
+                    if (state != GameState.LOBBY && state != GameState.END) {
+                        enter(GameState.END);
+                    }
+                }
+            }, this.fightTime * TickScheduler.TICKS_PER_SECOND);
+        }
+
+        /**
+         * @return the length of a phase in ticks
+         */
+        public long getTicks(int phase) {
+            return this.ticks.get(phase + 1) - this.ticks.get(phase);
+        }
+    }
+}